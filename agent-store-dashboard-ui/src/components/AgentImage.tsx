@@ -0,0 +1,22 @@
+import React from 'react';
+
+import { useAgentImageSrc } from '@/hooks/use-agent-image';
+
+interface AgentImageProps {
+  agent: { title: string; imageDataUrl?: string; imageUrl?: string };
+  className?: string;
+  fallback: React.ReactNode;
+}
+
+// Image of an agent, loaded with the signed-in user's token, or the fallback while missing or loading
+const AgentImage: React.FC<AgentImageProps> = ({ agent, className, fallback }) => {
+  const src = useAgentImageSrc(agent);
+
+  if (!src) {
+    return <>{fallback}</>;
+  }
+
+  return <img src={src} alt={agent.title} className={className} />;
+};
+
+export default AgentImage;
@@ -6,6 +6,7 @@ import { Search, Bot, Loader2, AlertCircle, Plus, Edit, Trash2, ExternalLink, Li
 import { useQuery, useMutation, useQueryClient } from '@tanstack/react-query';
 import { toast } from "sonner";
 import apiClient from '@/lib/apiClient';
+import AgentImage from '@/components/AgentImage';
 import { AgentDto } from '@/types/agent';
 
 // Function to fetch agents
@@ -123,17 +124,15 @@ export default function ManageAgents() {
                   <div key={agent.id} className="bg-muted/50 rounded-xl shadow-sm overflow-hidden border border-border">
                     <div className="md:flex">
                       <div className="md:w-48 bg-muted flex items-center justify-center flex-shrink-0 overflow-hidden">
-                        {agent.imageDataUrl ? (
-                          <img 
-                            src={agent.imageDataUrl} 
-                            alt={agent.title} 
-                            className="w-full h-48 md:h-full object-cover" 
-                          />
-                        ) : (
-                          <div className="w-full h-48 md:h-full flex items-center justify-center">
-                            <Bot className="text-muted-foreground h-12 w-12" />
-                          </div>
-                        )}
+                        <AgentImage
+                          agent={agent}
+                          className="w-full h-48 md:h-full object-cover"
+                          fallback={
+                            <div className="w-full h-48 md:h-full flex items-center justify-center">
+                              <Bot className="text-muted-foreground h-12 w-12" />
+                            </div>
+                          }
+                        />
                       </div>
                       <div className="flex-grow p-6">
                         <div className="flex justify-between items-start mb-2">
@@ -182,15 +181,11 @@ export default function ManageAgents() {
                 ) : (
                   <div key={agent.id} className="bg-muted/50 rounded-xl shadow-sm overflow-hidden border border-border">
                     <div className="bg-muted h-48 flex items-center justify-center overflow-hidden">
-                      {agent.imageDataUrl ? (
-                        <img 
-                          src={agent.imageDataUrl} 
-                          alt={agent.title} 
-                          className="w-full h-full object-cover" 
-                        />
-                      ) : (
-                        <Bot className="text-muted-foreground h-12 w-12" />
-                      )}
+                      <AgentImage
+                        agent={agent}
+                        className="w-full h-full object-cover"
+                        fallback={<Bot className="text-muted-foreground h-12 w-12" />}
+                      />
                     </div>
                     <div className="p-4">
                       <h3 
@@ -26,6 +26,7 @@ import {
 import { useMutation } from '@tanstack/react-query';
 import { toast } from "sonner";
 import apiClient from '@/lib/apiClient';
+import AgentImage from '@/components/AgentImage';
 
 interface UserAgentAccessModalProps {
   isOpen: boolean;
@@ -174,15 +175,11 @@ export default function UserAgentAccessModal({
                   >
                     <div className="flex items-center space-x-3">
                       <div className="w-10 h-10 rounded-lg bg-neutral-700 flex items-center justify-center flex-shrink-0">
-                        {agent.imageDataUrl ? (
-                          <img 
-                            src={agent.imageDataUrl} 
-                            alt={agent.title} 
-                            className="w-full h-full object-cover rounded-lg" 
-                          />
-                        ) : (
-                          <Bot className="text-white h-5 w-5" />
-                        )}
+                        <AgentImage
+                          agent={agent}
+                          className="w-full h-full object-cover rounded-lg"
+                          fallback={<Bot className="text-white h-5 w-5" />}
+                        />
                       </div>
                       <div className="flex-grow min-w-0">
                         <h4 className="font-medium text-neutral-800 truncate">{agent.title}</h4>
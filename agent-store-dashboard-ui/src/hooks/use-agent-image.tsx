@@ -0,0 +1,42 @@
+import * as React from "react"
+
+import apiClient from "@/lib/apiClient"
+
+type AgentImageSource = { imageDataUrl?: string; imageUrl?: string }
+
+// Resolve the image of an agent to something an <img> can show
+// The image endpoint requires the bearer token, which <img> tags cannot send, so the image is fetched as a blob
+// and shown through an object URL that is released when the component unmounts or the image changes
+export function useAgentImageSrc(agent: AgentImageSource): string | undefined {
+  const [objectUrl, setObjectUrl] = React.useState<string | undefined>(undefined)
+  const imageUrl = agent.imageDataUrl ? undefined : agent.imageUrl
+
+  React.useEffect(() => {
+    setObjectUrl(undefined)
+    if (!imageUrl) {
+      return
+    }
+
+    let cancelled = false
+    let createdUrl: string | undefined
+    apiClient.get<Blob>(imageUrl, { responseType: "blob" })
+      .then((response) => {
+        if (!cancelled) {
+          createdUrl = URL.createObjectURL(response.data)
+          setObjectUrl(createdUrl)
+        }
+      })
+      .catch(() => {
+        // Agents whose image can not be loaded show the placeholder icon
+      })
+
+    return () => {
+      cancelled = true
+      if (createdUrl) {
+        URL.revokeObjectURL(createdUrl)
+      }
+    }
+  }, [imageUrl])
+
+  return agent.imageDataUrl || objectUrl
+}
@@ -39,5 +39,4 @@ apiClient.interceptors.response.use(
   }
 );
 
-
 export default apiClient; 
\ No newline at end of file
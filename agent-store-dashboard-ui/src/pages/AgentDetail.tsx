@@ -7,6 +7,7 @@ import { ChevronLeft, Bot, Loader2, AlertCircle, ExternalLink } from 'lucide-rea
 import { useQuery } from '@tanstack/react-query';
 import { toast } from "sonner";
 import apiClient from '@/lib/apiClient';
+import AgentImage from '@/components/AgentImage';
 import { AgentDto } from '@/types/agent';
 import { AxiosError } from 'axios';
 
@@ -99,17 +100,15 @@ export default function AgentDetail() {
           <div className="bg-card rounded-xl shadow-md overflow-hidden border border-border">
             <div className="md:flex">
                <div className="md:w-80 lg:w-96 bg-muted flex items-center justify-center flex-shrink-0 overflow-hidden"> 
-                  {agent.imageDataUrl ? (
-                    <img 
-                      src={agent.imageDataUrl} 
-                      alt={agent.title} 
-                      className="w-full h-64 md:h-80 lg:h-96 object-cover" 
-                    />
-                  ) : (
-                    <div className="w-full h-64 md:h-80 lg:h-96 flex items-center justify-center">
-                      <Bot className="text-muted-foreground h-24 w-24" />
-                    </div>
-                  )}
+                  <AgentImage
+                    agent={agent}
+                    className="w-full h-64 md:h-80 lg:h-96 object-cover"
+                    fallback={
+                      <div className="w-full h-64 md:h-80 lg:h-96 flex items-center justify-center">
+                        <Bot className="text-muted-foreground h-24 w-24" />
+                      </div>
+                    }
+                  />
                 </div>
                 <div className="flex-grow p-8">
                    <h1 className="text-3xl font-semibold text-card-foreground mb-3">{agent.title}</h1>
@@ -7,6 +7,7 @@ import { ThemeToggle } from '@/components/ui/theme-toggle';
 import { Search, Bot, Loader2, AlertCircle, ExternalLink, List, Grid3X3 } from 'lucide-react';
 import { useQuery } from '@tanstack/react-query';
 import apiClient from '@/lib/apiClient';
+import AgentImage from '@/components/AgentImage';
 import { AgentDto } from '@/types/agent';
 
 // Function to fetch agents
@@ -122,17 +123,15 @@ export default function Dashboard() {
                     <div className="bg-card rounded-xl shadow-md overflow-hidden border border-border hover:shadow-lg transition-shadow">
                       <div className="md:flex">
                         <div className="md:w-48 bg-muted flex items-center justify-center flex-shrink-0 overflow-hidden">
-                          {agent.imageDataUrl ? (
-                            <img 
-                              src={agent.imageDataUrl} 
-                              alt={agent.title} 
-                              className="w-full h-48 md:h-full object-cover" 
-                            />
-                          ) : (
-                            <div className="w-full h-48 md:h-full flex items-center justify-center">
-                              <Bot className="text-muted-foreground h-12 w-12" />
-                            </div>
-                          )}
+                          <AgentImage
+                            agent={agent}
+                            className="w-full h-48 md:h-full object-cover"
+                            fallback={
+                              <div className="w-full h-48 md:h-full flex items-center justify-center">
+                                <Bot className="text-muted-foreground h-12 w-12" />
+                              </div>
+                            }
+                          />
                         </div>
                         <div className="flex-grow p-6">
                           <h3 className="text-xl text-card-foreground mb-2">{agent.title}</h3>
@@ -166,15 +165,11 @@ export default function Dashboard() {
                 ) : (
                   <div key={agent.id} className="bg-card rounded-xl shadow-md overflow-hidden border border-border hover:shadow-lg transition-shadow">
                     <div className="bg-muted h-48 flex items-center justify-center overflow-hidden">
-                      {agent.imageDataUrl ? (
-                        <img 
-                          src={agent.imageDataUrl} 
-                          alt={agent.title} 
-                          className="w-full h-full object-cover" 
-                        />
-                      ) : (
-                        <Bot className="text-muted-foreground h-12 w-12" />
-                      )}
+                      <AgentImage
+                        agent={agent}
+                        className="w-full h-full object-cover"
+                        fallback={<Bot className="text-muted-foreground h-12 w-12" />}
+                      />
                     </div>
                     <div className="p-4">
                       <h3 
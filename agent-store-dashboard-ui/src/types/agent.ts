@@ -8,6 +8,8 @@ export interface AgentDto {
   mimeType?: string;
   // Complete data URL for frontend display (format: "data:{mimeType};base64,{imageData}")
   imageDataUrl?: string;
+  // URL of the raw image relative to the API base URL (format: "/images/agents/{id}?v={contentHash}")
+  imageUrl?: string;
   linkUrl?: string; // Optional based on schema presence, adjust if required
   port?: string; // Port number where the agent application is running
   createdAt?: string; // format: date-time
@@ -24,8 +24,8 @@ public class CorsConfig {
         List<String> origins = Arrays.asList(allowedOrigins.split(","));
         config.setAllowedOrigins(origins);
         config.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
-        config.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Requested-With"));
-        config.setExposedHeaders(Arrays.asList("Content-Type", "Content-Disposition"));
+        config.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Requested-With", "Range", "If-None-Match"));
+        config.setExposedHeaders(Arrays.asList("Content-Type", "Content-Disposition", "Content-Range", "Accept-Ranges", "ETag"));
         config.setAllowCredentials(true);
         config.setMaxAge(3600L);
         
@@ -0,0 +1,35 @@
+package com.agentstore.api.config;
+
+import com.agentstore.api.storage.DatabaseImageStore;
+import com.agentstore.api.storage.FileSystemImageStore;
+import com.agentstore.api.storage.ImageStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+@Slf4j
+@Configuration
+public class ImageStoreConfig {
+    
+    @Value("${app.images.store.type:database}")
+    private String storeType;
+    
+    /**
+     * The store new images are written to and served from
+     * Both backends stay registered so images can be migrated between them
+     */
+    @Bean
+    @Primary
+    public ImageStore imageStore(DatabaseImageStore databaseImageStore, FileSystemImageStore fileSystemImageStore) {
+        ImageStore store = switch (storeType) {
+            case DatabaseImageStore.NAME -> databaseImageStore;
+            case FileSystemImageStore.NAME -> fileSystemImageStore;
+            default -> throw new IllegalStateException("Unknown image store type: " + storeType);
+        };
+        
+        log.info("Using {} image store", store.getName());
+        return store;
+    }
+}
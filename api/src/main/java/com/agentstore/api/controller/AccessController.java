@@ -0,0 +1,33 @@
+package com.agentstore.api.controller;
+
+import com.agentstore.api.dto.AccessBulkRequest;
+import com.agentstore.api.dto.AccessBulkResult;
+import com.agentstore.api.dto.ApiResponse;
+import com.agentstore.api.service.AgentAccessService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/access")
+@RequiredArgsConstructor
+@Tag(name = "Access Management", description = "Agent Access Management API")
+@SecurityRequirement(name = "Bearer Authentication")
+public class AccessController {
+    
+    private final AgentAccessService agentAccessService;
+    
+    @PostMapping("/bulk")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Grant or revoke agents for many users at once (Admin only)",
+            description = "Applies every agent to every user selected by userIds or roles in one transaction. Idempotent; reports how many grants changed.")
+    public ResponseEntity<ApiResponse<AccessBulkResult>> applyBulk(@Valid @RequestBody AccessBulkRequest request) {
+        AccessBulkResult result = agentAccessService.applyBulk(request);
+        return ResponseEntity.ok(ApiResponse.success("Agent access updated", result));
+    }
+}
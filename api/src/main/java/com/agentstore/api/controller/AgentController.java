@@ -1,19 +1,35 @@
 package com.agentstore.api.controller;
 
+import com.agentstore.api.dto.AgentChanges;
 import com.agentstore.api.dto.AgentDto;
+import com.agentstore.api.dto.AgentHealth;
 import com.agentstore.api.dto.ApiResponse;
+import com.agentstore.api.dto.BulkImportResult;
+import com.agentstore.api.dto.CatalogCacheStats;
+import com.agentstore.api.dto.CursorPage;
+import com.agentstore.api.service.AgentBulkService;
+import com.agentstore.api.service.AgentEventStream;
 import com.agentstore.api.service.AgentService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -23,18 +39,104 @@ import java.util.List;
 @SecurityRequirement(name = "Bearer Authentication")
 public class AgentController {
     
+    private static final String INCLUDE_IMAGE = "image";
+    private static final String NDJSON = "application/x-ndjson";
+    
     private final AgentService agentService;
+    private final AgentBulkService agentBulkService;
+    private final AgentEventStream agentEventStream;
     
     @GetMapping
-    @Operation(summary = "Get all agents (filtered by user's permissions)")
-    public ResponseEntity<List<AgentDto>> getAllAgents() {
-        return ResponseEntity.ok(agentService.getAllAgents());
+    @Operation(summary = "Get all agents (filtered by user's permissions)",
+            description = "Agents link to their image through imageUrl. Pass include=image to also embed the base64 image fields.")
+    public ResponseEntity<List<AgentDto>> getAllAgents(@RequestParam(required = false) String include,
+                                                       WebRequest webRequest) {
+        return ConditionalResponses.withETag(webRequest, agentService.getCatalogETag(),
+                () -> agentService.getAllAgents(INCLUDE_IMAGE.equals(include)));
     }
     
     @GetMapping("/paginated")
-    @Operation(summary = "Get all agents with pagination (filtered by user's permissions)")
-    public ResponseEntity<Page<AgentDto>> getAllAgents(Pageable pageable) {
-        return ResponseEntity.ok(agentService.getAllAgents(pageable));
+    @Operation(summary = "Get all agents with pagination (filtered by user's permissions)",
+            description = "Agents link to their image through imageUrl. Pass include=image to also embed the base64 image fields.")
+    public ResponseEntity<Page<AgentDto>> getAllAgents(Pageable pageable,
+                                                       @RequestParam(required = false) String include,
+                                                       WebRequest webRequest) {
+        return ConditionalResponses.withETag(webRequest, agentService.getCatalogETag(),
+                () -> agentService.getAllAgents(pageable, INCLUDE_IMAGE.equals(include)));
+    }
+    
+    @GetMapping(value = "/paginated", params = "limit")
+    @Operation(summary = "Get agents page by page with a cursor (filtered by user's permissions)",
+            description = "Pass the nextCursor of the previous page as after. Pages are not counted unless count=true.")
+    public ResponseEntity<CursorPage<AgentDto>> getAgentsAfter(@RequestParam(required = false) String after,
+                                                               @RequestParam int limit,
+                                                               @RequestParam(defaultValue = "false") boolean count,
+                                                               WebRequest webRequest) {
+        return ConditionalResponses.withETag(webRequest, agentService.getCatalogETag(),
+                () -> agentService.getAgentsAfter(after, limit, count));
+    }
+    
+    @GetMapping("/search")
+    @Operation(summary = "Search agent titles and descriptions (filtered by user's permissions)",
+            description = "Ranked by relevance, title words weigh more than description words. Supports quoted phrases, OR and -word.")
+    public ResponseEntity<List<AgentDto>> searchAgents(@RequestParam String q,
+                                                       @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(agentService.searchAgents(q, limit));
+    }
+    
+    @PostMapping(value = "/bulk", consumes = {NDJSON, "application/json", "text/plain"})
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Create or update agents from NDJSON, one agent per line (Admin only)",
+            description = "Lines are upserted in batches; invalid lines are reported with their line number and skipped. " +
+                    "Agents identical to the stored ones are counted as unchanged and not written. Images are not imported.")
+    public ResponseEntity<ApiResponse<BulkImportResult>> importAgents(HttpServletRequest request) throws IOException {
+        BulkImportResult result = agentBulkService.importAgents(
+                new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8));
+        return ResponseEntity.ok(ApiResponse.success("Agents imported", result));
+    }
+    
+    @GetMapping(value = "/export", produces = NDJSON)
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Export all agents as NDJSON in creation order (Admin only)")
+    public void exportAgents(HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"agents.ndjson\"");
+        agentBulkService.exportAgents(response.getOutputStream());
+    }
+    
+    @GetMapping("/cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get agent catalog cache hit and miss counters (Admin only)")
+    public ResponseEntity<ApiResponse<CatalogCacheStats>> getCatalogCacheStats() {
+        return ResponseEntity.ok(ApiResponse.success("Catalog cache statistics retrieved successfully",
+                agentService.getCatalogCacheStats()));
+    }
+    
+    @GetMapping("/changes")
+    @Operation(summary = "Get agents changed since a catalog version (filtered by user's permissions)",
+            description = "Pass the version of the previous response as since, or 0 for the first sync. " +
+                    "Deleted and revoked agents are listed as tombstones. fullResync=true means agents replaces the local copy.")
+    public ResponseEntity<ApiResponse<AgentChanges>> getChanges(@RequestParam(defaultValue = "0") long since) {
+        return ResponseEntity.ok(ApiResponse.success("Agent changes retrieved successfully",
+                agentService.getChangesSince(since)));
+    }
+    
+    @GetMapping("/{id}/health")
+    @Operation(summary = "Get the latest health probe of an agent (if user has access)",
+            description = "The agent link is probed with HTTP, or its port with a TCP connect, on a schedule.")
+    public ResponseEntity<ApiResponse<AgentHealth>> getAgentHealth(@PathVariable String id) {
+        return ResponseEntity.ok(ApiResponse.success("Agent health retrieved successfully",
+                agentService.getAgentHealth(id)));
+    }
+    
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream agent and access changes as server-sent events (filtered by user's permissions)",
+            description = "Events: agent-created, agent-updated, agent-deleted, access-granted, access-revoked and " +
+                    "catalog-changed. The event id is the version of the change it reports; after a reconnect, " +
+                    "catch up with GET /agents/changes.")
+    public SseEmitter streamEvents() {
+        return agentEventStream.subscribe();
     }
     
     @GetMapping("/{id}")
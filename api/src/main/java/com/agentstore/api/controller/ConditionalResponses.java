@@ -0,0 +1,39 @@
+package com.agentstore.api.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.function.Supplier;
+
+/**
+ * Builds list responses that clients revalidate with If-None-Match
+ */
+final class ConditionalResponses {
+    
+    // Private because lists depend on who asks; no-cache makes clients revalidate before every reuse
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+    
+    private ConditionalResponses() {
+    }
+    
+    /**
+     * Answer 304 when the client already has the current version, otherwise build the body
+     * @param etag Taken before the body is built, so a concurrent change can only make the ETag older than the body
+     * @param body Only called when the client copy is stale
+     */
+    static <T> ResponseEntity<T> withETag(WebRequest webRequest, String etag, Supplier<T> body) {
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(REVALIDATE)
+                    .build();
+        }
+        
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(REVALIDATE)
+                .body(body.get());
+    }
+}
@@ -1,20 +1,41 @@
 package com.agentstore.api.controller;
 
-import com.agentstore.api.entity.Agent;
+import com.agentstore.api.dto.ApiResponse;
+import com.agentstore.api.dto.ImageCacheStats;
+import com.agentstore.api.entity.AgentImage;
+import com.agentstore.api.entity.AgentImageVariant;
 import com.agentstore.api.exception.ResourceNotFoundException;
 import com.agentstore.api.repository.AgentRepository;
+import com.agentstore.api.repository.projection.AgentImageMetadata;
+import com.agentstore.api.service.AgentImageService;
+import com.agentstore.api.service.AgentService;
+import com.agentstore.api.service.ImageVariantService;
+import com.agentstore.api.util.ImageUtil;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.util.StringUtils;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.ZoneId;
 import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/images")
@@ -23,43 +44,324 @@ import java.util.Base64;
 @SecurityRequirement(name = "Bearer Authentication")
 public class ImageController {
     
+    // Images are only served to users who may see the agent, so shared caches must not keep them
+    private static final String IMMUTABLE_CACHE_CONTROL = "private, max-age=31536000, immutable";
+    private static final String REVALIDATE_CACHE_CONTROL = "private, max-age=3600"; // Cache for 1 hour
+    
+    private static final String GZIP_ENCODING = "gzip";
+    private static final String GZIP_ETAG_SUFFIX = "-gzip";
+    
+    // Tomcat request attributes for handing a file to the connector, which copies it with sendfile(2)
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    
     private final AgentRepository agentRepository;
+    private final AgentImageService agentImageService;
+    private final AgentService agentService;
+    private final ImageVariantService imageVariantService;
     
     @GetMapping("/agents/{agentId}")
-    @Operation(summary = "Get agent image as raw binary data")
-    public ResponseEntity<byte[]> getAgentImage(@PathVariable String agentId) {
-        Agent agent = agentRepository.findById(agentId)
-                .orElseThrow(() -> new ResourceNotFoundException("Agent", "id", agentId));
+    @Operation(summary = "Get agent image as raw binary data",
+            description = "Supports If-None-Match/If-Modified-Since revalidation, HEAD and single byte Range requests. " +
+                    "SVG and BMP images are sent gzip compressed to clients that accept it. " +
+                    "Requests whose v parameter matches the current content hash are cacheable forever. " +
+                    "Pass size to get the smallest downscaled variant at least that large, once variants are ready.")
+    public void getAgentImage(@PathVariable String agentId,
+                              @RequestParam(name = "v", required = false) String version,
+                              @RequestParam(required = false) Integer size,
+                              ServletWebRequest webRequest,
+                              HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
+        requireVisibleAgent(agentId);
+        Optional<AgentImageMetadata> metadata = agentImageService.findMetadata(agentId);
         
-        if (!StringUtils.hasText(agent.getImageData()) || !StringUtils.hasText(agent.getMimeType())) {
-            return ResponseEntity.notFound().build();
+        if (metadata.isEmpty()) {
+            requireAgent(agentId);
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
         }
         
-        try {
-            byte[] imageBytes = Base64.getDecoder().decode(agent.getImageData());
+        // A URL carrying the content hash always names the same bytes, so it never needs revalidation
+        boolean versioned = metadata.get().getContentHash().equals(version);
+        
+        Optional<Integer> variantSize = imageVariantService.resolveVariantSize(size);
+        if (variantSize.isPresent()) {
+            // Read with its bytes before any header is set, so the headers describe exactly the bytes sent; variants
+            // are small enough that a revalidation loading them costs little
+            Optional<AgentImageVariant> variant = agentImageService.findVariant(agentId, variantSize.get());
             
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType(agent.getMimeType()));
-            headers.setContentLength(imageBytes.length);
-            headers.setCacheControl("public, max-age=3600"); // Cache for 1 hour
+            if (variant.isPresent()) {
+                if (!checkNotModified(variant.get(), false, versioned, webRequest, response) && !isHeadRequest(request)) {
+                    writeBytes(variant.get().getData(), response);
+                }
+                return;
+            }
             
-            return new ResponseEntity<>(imageBytes, headers, HttpStatus.OK);
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest().build();
+            // Variants are not ready yet, or were just replaced: serve the original, but don't let it be cached as
+            // the variant
+            versioned = false;
+        }
+        
+        boolean gzip = false;
+        if (metadata.get().getGzipSizeBytes() != null) {
+            // Shared caches must key the response on Accept-Encoding once a compressed copy exists
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            // Byte ranges refer to the original bytes, so range requests always get the identity encoding
+            gzip = request.getHeader(HttpHeaders.RANGE) == null && acceptsGzip(request);
+        }
+        
+        if (checkNotModified(metadata.get(), gzip, versioned, webRequest, response)) {
+            return;
+        }
+        
+        if (gzip) {
+            writeGzipImage(metadata.get(), request, response);
+        } else {
+            writeImage(metadata.get(), request, response);
+        }
+    }
+    
+    @PutMapping(value = "/agents/{agentId}", consumes = {"image/*", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Upload agent image as raw binary body (Admin only)",
+            description = "The body is streamed to storage; the format is detected from the bytes for application/octet-stream.")
+    public ResponseEntity<ApiResponse<String>> uploadAgentImage(@PathVariable String agentId,
+                                                                HttpServletRequest request) throws IOException {
+        requireAgent(agentId);
+        rejectOversizedUpload(request.getContentLengthLong());
+        
+        String imageUrl = agentImageService.uploadImage(agentId, request.getContentType(), request.getInputStream());
+        return ResponseEntity.ok(ApiResponse.success("Agent image stored successfully", imageUrl));
+    }
+    
+    @PutMapping(value = "/agents/{agentId}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Upload agent image as multipart file (Admin only)")
+    public ResponseEntity<ApiResponse<String>> uploadAgentImage(@PathVariable String agentId,
+                                                                @RequestPart("file") MultipartFile file) throws IOException {
+        requireAgent(agentId);
+        rejectOversizedUpload(file.getSize());
+        
+        try (InputStream in = file.getInputStream()) {
+            String imageUrl = agentImageService.uploadImage(agentId, file.getContentType(), in);
+            return ResponseEntity.ok(ApiResponse.success("Agent image stored successfully", imageUrl));
         }
     }
     
     @GetMapping("/agents/{agentId}/data-url")
     @Operation(summary = "Get agent image as data URL")
     public ResponseEntity<String> getAgentImageDataUrl(@PathVariable String agentId) {
-        Agent agent = agentRepository.findById(agentId)
-                .orElseThrow(() -> new ResourceNotFoundException("Agent", "id", agentId));
+        requireVisibleAgent(agentId);
+        Optional<AgentImage> image = agentImageService.findImage(agentId);
+        Optional<byte[]> data = image.flatMap(agentImageService::readImageBytes);
         
-        if (!StringUtils.hasText(agent.getImageData()) || !StringUtils.hasText(agent.getMimeType())) {
+        if (data.isEmpty()) {
+            requireAgent(agentId);
             return ResponseEntity.notFound().build();
         }
         
-        String dataUrl = String.format("data:%s;base64,%s", agent.getMimeType(), agent.getImageData());
+        String dataUrl = ImageUtil.toDataUrl(image.get().getMimeType(), Base64.getEncoder().encodeToString(data.get()));
         return ResponseEntity.ok(dataUrl);
     }
-} 
\ No newline at end of file
+    
+    @GetMapping("/cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get image cache hit, miss and eviction counters (Admin only)")
+    public ResponseEntity<ApiResponse<ImageCacheStats>> getImageCacheStats() {
+        return ResponseEntity.ok(ApiResponse.success("Image cache statistics retrieved successfully",
+                agentImageService.getCacheStats()));
+    }
+    
+    /**
+     * Set caching headers and answer 304 from metadata alone when the client copy is current
+     * @param gzip Whether the gzip compressed copy will be sent, which is a distinct representation with its own ETag
+     * @return true if a 304 was sent, false if the caller must write the body
+     */
+    private boolean checkNotModified(AgentImageMetadata image, boolean gzip, boolean immutable,
+                                     ServletWebRequest webRequest, HttpServletResponse response) {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, immutable ? IMMUTABLE_CACHE_CONTROL : REVALIDATE_CACHE_CONTROL);
+        
+        // Sets ETag and Last-Modified, and the 304 status when they match the request
+        String etag = "\"" + image.getContentHash() + (gzip ? GZIP_ETAG_SUFFIX : "") + "\"";
+        long lastModified = image.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            return true;
+        }
+        
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(image.getMimeType());
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING);
+            response.setContentLengthLong(image.getGzipSizeBytes());
+        } else {
+            response.setContentLengthLong(image.getSizeBytes());
+        }
+        return false;
+    }
+    
+    /**
+     * Write the original image, or the single byte range the client asked for
+     * Files are handed to the connector when possible so the kernel does the copy; other stores
+     * stream the bytes as stored, with no decode step
+     */
+    private void writeImage(AgentImageMetadata image, HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+        long size = image.getSizeBytes();
+        long start = 0;
+        long length = size;
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        
+        Optional<HttpRange> range;
+        try {
+            range = resolveRange(image, request);
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+            response.setContentLengthLong(0);
+            return;
+        }
+        
+        if (range.isPresent()) {
+            start = range.get().getRangeStart(size);
+            length = range.get().getRangeEnd(size) - start + 1;
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (start + length - 1) + "/" + size);
+            response.setContentLengthLong(length);
+        }
+        
+        if (isHeadRequest(request)) {
+            return;
+        }
+        
+        if (!sendFile(agentImageService.findImageFile(image), start, length, request)) {
+            agentImageService.streamImage(image, start, length, response.getOutputStream());
+        }
+    }
+    
+    /**
+     * Write the gzip compressed copy of the original image, stored at upload so nothing is compressed per request
+     */
+    private void writeGzipImage(AgentImageMetadata image, HttpServletRequest request,
+                                HttpServletResponse response) throws IOException {
+        if (isHeadRequest(request)) {
+            return;
+        }
+        
+        if (!sendFile(agentImageService.findGzipImageFile(image), 0, image.getGzipSizeBytes(), request)) {
+            agentImageService.streamGzipImage(image, response.getOutputStream());
+        }
+    }
+    
+    /**
+     * Hand a file to the connector when it supports sendfile, so the kernel copies it to the socket
+     * @return true if the connector will write the body, false if the caller must
+     */
+    private static boolean sendFile(Optional<Path> file, long start, long length, HttpServletRequest request) {
+        if (file.isEmpty() || !Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            return false;
+        }
+        
+        request.setAttribute(SENDFILE_FILENAME, file.get().toString());
+        request.setAttribute(SENDFILE_START, start);
+        request.setAttribute(SENDFILE_END, start + length);
+        return true;
+    }
+    
+    /**
+     * Check whether the client accepts gzip, honoring q=0 and an explicit gzip entry over a wildcard
+     */
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        
+        Boolean wildcard = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            boolean accepted = parts.length < 2 || !parts[1].trim().matches("q=0(\\.0{0,3})?");
+            
+            if (name.equalsIgnoreCase(GZIP_ENCODING)) {
+                return accepted;
+            }
+            if (name.equals("*")) {
+                wildcard = accepted;
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+    
+    /**
+     * Resolve the Range header to a single range, honoring If-Range
+     * Multiple ranges are answered with the whole image, which RFC 9110 allows
+     * @return The requested range, or empty if the whole image should be sent
+     * @throws IllegalArgumentException if the range cannot be satisfied
+     */
+    private static Optional<HttpRange> resolveRange(AgentImageMetadata image, HttpServletRequest request) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return Optional.empty();
+        }
+        
+        // A stale If-Range means the client's partial copy is of different bytes
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals("\"" + image.getContentHash() + "\"")) {
+            return Optional.empty();
+        }
+        
+        List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+        if (ranges.size() != 1) {
+            return Optional.empty();
+        }
+        
+        HttpRange range = ranges.get(0);
+        if (image.getSizeBytes() == 0 || range.getRangeStart(image.getSizeBytes()) >= image.getSizeBytes()) {
+            throw new IllegalArgumentException("Range starts past the end of the image: " + rangeHeader);
+        }
+        return Optional.of(range);
+    }
+    
+    private static boolean isHeadRequest(HttpServletRequest request) {
+        return HttpMethod.HEAD.matches(request.getMethod());
+    }
+    
+    private static void writeBytes(byte[] data, HttpServletResponse response) {
+        try {
+            response.getOutputStream().write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Fail before reading the body when the client announces an oversized upload
+     * The limit is enforced again while streaming, since the announced length may be missing or wrong
+     */
+    private static void rejectOversizedUpload(long contentLength) {
+        if (contentLength > ImageUtil.MAX_RAW_IMAGE_SIZE_BYTES) {
+            throw new IllegalArgumentException("Image size too large: " + ImageUtil.formatFileSize(contentLength));
+        }
+    }
+    
+    /**
+     * Answer 404 for agents the current user can not see, as GET /agents/{id} does
+     * Checked against the in-memory access index before any image is read
+     */
+    private void requireVisibleAgent(String agentId) {
+        if (!agentService.hasAccessToAgent(agentId)) {
+            throw new ResourceNotFoundException("Agent", "id", agentId);
+        }
+    }
+    
+    /**
+     * Distinguish an unknown agent from an agent without an image
+     */
+    private void requireAgent(String agentId) {
+        if (!agentRepository.existsById(agentId)) {
+            throw new ResourceNotFoundException("Agent", "id", agentId);
+        }
+    }
+}
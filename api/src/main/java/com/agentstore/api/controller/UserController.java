@@ -1,8 +1,11 @@
 package com.agentstore.api.controller;
 
 import com.agentstore.api.dto.ApiResponse;
+import com.agentstore.api.dto.CursorPage;
 import com.agentstore.api.dto.RoleDto;
 import com.agentstore.api.dto.UserDto;
+import com.agentstore.api.dto.UserFilter;
+import com.agentstore.api.dto.UserSuggestion;
 import com.agentstore.api.dto.UserUpdateRequest;
 import com.agentstore.api.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -13,6 +16,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Map;
@@ -31,8 +35,37 @@ public class UserController {
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Get all users (Admin only)")
-    public ResponseEntity<List<UserDto>> getAllUsers() {
-        return ResponseEntity.ok(userService.getAllUsers());
+    public ResponseEntity<List<UserDto>> getAllUsers(WebRequest webRequest) {
+        return ConditionalResponses.withETag(webRequest, userService.getUsersETag(), userService::getAllUsers);
+    }
+    
+    @GetMapping("/page")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get users page by page with a cursor, optionally filtered (Admin only)",
+            description = "Pass the nextCursor of the previous page as after. Filters by role name, enabled flag and granted agent are combined. Pages are not counted unless count=true.")
+    public ResponseEntity<CursorPage<UserDto>> getUsersAfter(@RequestParam(required = false) String after,
+                                                             @RequestParam(defaultValue = "20") int limit,
+                                                             @RequestParam(required = false) String role,
+                                                             @RequestParam(required = false) Boolean enabled,
+                                                             @RequestParam(required = false) String agentId,
+                                                             @RequestParam(defaultValue = "false") boolean count,
+                                                             WebRequest webRequest) {
+        UserFilter filter = UserFilter.builder()
+                .role(role)
+                .enabled(enabled)
+                .agentId(agentId)
+                .build();
+        return ConditionalResponses.withETag(webRequest, userService.getUsersETag(),
+                () -> userService.getUsersAfter(after, limit, filter, count));
+    }
+    
+    @GetMapping("/suggest")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Suggest users by username or email prefix (Admin only)",
+            description = "Case-insensitive; answered from an in-memory index, for typeahead pickers.")
+    public ResponseEntity<List<UserSuggestion>> suggestUsers(@RequestParam String prefix,
+                                                             @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(userService.suggestUsers(prefix, limit));
     }
     
     @GetMapping("/{id}")
@@ -86,7 +119,7 @@ public class UserController {
     @GetMapping("/roles")
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Get all roles (Admin only)")
-    public ResponseEntity<List<RoleDto>> getAllRoles() {
-        return ResponseEntity.ok(userService.getAllRoles());
+    public ResponseEntity<List<RoleDto>> getAllRoles(WebRequest webRequest) {
+        return ConditionalResponses.withETag(webRequest, userService.getRolesETag(), userService::getAllRoles);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.agentstore.api.dto;
+
+/**
+ * What POST /access/bulk does with every cell of the user and agent matrix
+ */
+public enum AccessBulkAction {
+    
+    // Grant the agents, keeping grants that already exist
+    GRANT,
+    
+    // Revoke the agents, ignoring agents that were not granted
+    REVOKE
+}
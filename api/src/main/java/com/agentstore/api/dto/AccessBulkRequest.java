@@ -0,0 +1,31 @@
+package com.agentstore.api.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AccessBulkRequest {
+    
+    @NotNull(message = "Action is required")
+    private AccessBulkAction action;
+    
+    // Users are selected by ID, by role name, or both; the selections are merged
+    @Builder.Default
+    private List<Long> userIds = new ArrayList<>();
+    
+    @Builder.Default
+    private List<String> roles = new ArrayList<>();
+    
+    @NotEmpty(message = "At least one agent ID is required")
+    private List<String> agentIds;
+}
@@ -0,0 +1,24 @@
+package com.agentstore.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AccessBulkResult {
+    
+    private AccessBulkAction action;
+    
+    private long users;
+    
+    private long agents;
+    
+    // Grants actually inserted or deleted; the other cells of the matrix were already as requested
+    private long changed;
+    
+    private long unchanged;
+}
@@ -0,0 +1,30 @@
+package com.agentstore.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The agents a user may see that changed since a catalog version
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AgentChanges {
+    
+    // Pass as since on the next sync
+    private long version;
+    
+    // When true, agents is the whole visible catalog and replaces the client copy
+    private boolean fullResync;
+    
+    // Agents created or updated since the requested version, in creation order
+    private List<AgentDto> agents;
+    
+    // Agents that were deleted or are no longer visible to the user
+    private List<String> tombstones;
+}
@@ -36,11 +36,26 @@ public class AgentDto {
     // Format: "data:{mimeType};base64,{imageData}"
     private String imageDataUrl;
     
+    // URL of the raw image, relative to the API base path
+    // Format: "/images/agents/{id}?v={contentHash}", the version changes whenever the image does
+    private String imageUrl;
+    
+    // State of the downscaled variants (PENDING, PROCESSING, READY, FAILED, UNSUPPORTED)
+    // Variants are requested with "{imageUrl}&size={px}" once READY
+    private String imageStatus;
+    
+    // Tiny preview of the image as a data URL, shown while the real image loads
+    private String imagePlaceholder;
+    
     private String linkUrl;
     
     @Size(max = 10, message = "Port cannot be more than 10 characters")
     private String port;
     
+    // Latest health probe of linkUrl or port (UP, DOWN, UNKNOWN), null until the agent was first probed
+    // Latency moves with every probe, so it is only served by GET /agents/{id}/health, never by cached listings
+    private String status;
+    
     private LocalDateTime createdAt;
     
     private LocalDateTime updatedAt;
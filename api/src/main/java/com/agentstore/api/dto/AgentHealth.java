@@ -0,0 +1,31 @@
+package com.agentstore.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AgentHealth {
+    
+    private String agentId;
+    private AgentHealthStatus status;
+    
+    // URL or host:port that was probed
+    private String target;
+    
+    // Time to the response or the established connection, null unless UP
+    private Long latencyMs;
+    
+    // Why the probe failed, null unless DOWN
+    private String error;
+    
+    private LocalDateTime checkedAt;
+}
@@ -0,0 +1,16 @@
+package com.agentstore.api.dto;
+
+/**
+ * Outcome of the latest health probe of an agent
+ */
+public enum AgentHealthStatus {
+    
+    // The service answered within the timeout
+    UP,
+    
+    // The connection failed, timed out, or the service answered with a server error
+    DOWN,
+    
+    // The agent has neither an HTTP link nor a port to probe
+    UNKNOWN
+}
@@ -0,0 +1,27 @@
+package com.agentstore.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data of an event sent on GET /agents/stream; the event name tells what happened
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AgentStreamEvent {
+    
+    // Null when many agents changed at once
+    private String agentId;
+    
+    // The agent as listed, for created, updated and granted agents
+    private AgentDto agent;
+    
+    // Catalog version reached, to pass as since to GET /agents/changes after a reconnect
+    private long version;
+}
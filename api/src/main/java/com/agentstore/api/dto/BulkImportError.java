@@ -0,0 +1,23 @@
+package com.agentstore.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkImportError {
+    
+    // 1-based line number in the uploaded NDJSON
+    private long line;
+    
+    // Agent ID of the line, if it could be read
+    private String id;
+    
+    private String message;
+}
@@ -0,0 +1,32 @@
+package com.agentstore.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkImportResult {
+    
+    private long processed;
+    
+    // Lines that created or changed an agent
+    private long upserted;
+    
+    // Valid lines identical to the stored agent, which were not written
+    private long unchanged;
+    
+    private long failed;
+    
+    // Only the first errors are listed, so a bad file can not exhaust memory
+    @Builder.Default
+    private List<BulkImportError> errors = new ArrayList<>();
+    
+    private boolean errorsTruncated;
+}
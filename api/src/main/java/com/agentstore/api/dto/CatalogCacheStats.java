@@ -0,0 +1,23 @@
+package com.agentstore.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CatalogCacheStats {
+    
+    private boolean enabled;
+    private long hits;
+    private long misses;
+    private long reloads;
+    private double hitRatio;
+    private int entries;
+    private LocalDateTime loadedAt;
+}
@@ -0,0 +1,30 @@
+package com.agentstore.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a keyset paginated listing
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CursorPage<T> {
+    
+    private List<T> content;
+    
+    // Pass as the after parameter to fetch the next page, null on the last page
+    private String nextCursor;
+    
+    private boolean hasMore;
+    
+    // Only counted when requested, since counting costs as much as reading every page
+    private Long totalElements;
+}
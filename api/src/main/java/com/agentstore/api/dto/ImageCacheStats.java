@@ -0,0 +1,21 @@
+package com.agentstore.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImageCacheStats {
+    
+    private long hits;
+    private long misses;
+    private long evictions;
+    private double hitRatio;
+    private int entries;
+    private long usedBytes;
+    private long maxBytes;
+}
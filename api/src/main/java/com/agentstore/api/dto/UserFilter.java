@@ -0,0 +1,24 @@
+package com.agentstore.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Filters of the admin user directory; a null filter is not applied
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserFilter {
+    
+    // Role name, such as ROLE_ADMIN
+    private String role;
+    
+    private Boolean enabled;
+    
+    // Only users granted this agent
+    private String agentId;
+}
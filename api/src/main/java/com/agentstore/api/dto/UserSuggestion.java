@@ -0,0 +1,21 @@
+package com.agentstore.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A user matching a typed prefix, with just enough to show and pick them
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserSuggestion {
+    
+    private Long id;
+    private String username;
+    private String email;
+    private boolean enabled;
+}
@@ -4,7 +4,9 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.time.LocalDateTime;
 import java.util.HashSet;
@@ -27,12 +29,6 @@ public class Agent {
     @Column(nullable = false, columnDefinition = "TEXT")
     private String description;
     
-    @Column(name = "image_data", columnDefinition = "TEXT")
-    private String imageData;
-    
-    @Column(name = "mime_type", length = 50)
-    private String mimeType;
-    
     @Column(name = "link_url")
     private String linkUrl;
     
@@ -45,7 +41,10 @@ public class Agent {
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
     
+    // Excluded so hashing an agent does not walk back into User.accessibleAgents
     @ManyToMany(mappedBy = "accessibleAgents")
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Set<User> usersWithAccess = new HashSet<>();
     
     @PrePersist
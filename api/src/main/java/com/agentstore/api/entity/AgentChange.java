@@ -0,0 +1,53 @@
+package com.agentstore.api.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of the agent change log; rows are written by database triggers, never by the application
+ */
+@Entity
+@Immutable
+@Table(name = "agent_changes")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AgentChange {
+    
+    public static final String CREATE = "CREATE";
+    public static final String UPSERT = "UPSERT";
+    public static final String DELETE = "DELETE";
+    public static final String IMAGE = "IMAGE";
+    public static final String GRANT = "GRANT";
+    public static final String REVOKE = "REVOKE";
+    
+    // Role changes concern every agent of a user, so they carry no agent ID
+    public static final String ROLES = "ROLES";
+    
+    // Order in which changes were logged, which is not the order in which they committed
+    @Id
+    private Long id;
+    
+    // Assigned by the sequencer once the change has committed, null until then
+    @Column(name = "version")
+    private Long version;
+    
+    @Column(name = "change_type", length = 20, nullable = false)
+    private String changeType;
+    
+    @Column(name = "agent_id", length = 50)
+    private String agentId;
+    
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+}
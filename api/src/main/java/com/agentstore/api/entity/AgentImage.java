@@ -0,0 +1,65 @@
+package com.agentstore.api.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Formula;
+
+import java.time.LocalDateTime;
+
+/**
+ * Metadata of an agent image; the bytes themselves are kept by the active ImageStore
+ */
+@Entity
+@Table(name = "agent_images")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AgentImage {
+    
+    @Id
+    @Column(name = "agent_id", length = 50)
+    private String agentId;
+    
+    @Column(name = "size_bytes", nullable = false)
+    private long sizeBytes;
+    
+    @Column(name = "mime_type", length = 50, nullable = false)
+    private String mimeType;
+    
+    @Column(name = "content_hash", length = 64, nullable = false)
+    private String contentHash;
+    
+    // Kept on the shared blob, since identical images share one compressed copy
+    @Formula("(SELECT b.gzip_size_bytes FROM image_blobs b WHERE b.content_hash = content_hash)")
+    private Long gzipSizeBytes;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "variant_status", length = 20, nullable = false)
+    @Builder.Default
+    private ImageVariantStatus variantStatus = ImageVariantStatus.PENDING;
+    
+    // Tiny preview of the image as a data URL, available once variants are ready
+    @Column(columnDefinition = "TEXT")
+    private String placeholder;
+    
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = LocalDateTime.now();
+    }
+    
+    @PreUpdate
+    protected void onUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
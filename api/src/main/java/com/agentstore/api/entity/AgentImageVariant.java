@@ -0,0 +1,62 @@
+package com.agentstore.api.entity;
+
+import com.agentstore.api.repository.projection.AgentImageMetadata;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "agent_image_variants")
+@IdClass(AgentImageVariantId.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AgentImageVariant implements AgentImageMetadata {
+    
+    @Id
+    @Column(name = "agent_id", length = 50)
+    private String agentId;
+    
+    @Id
+    @Column(name = "size_px")
+    private int sizePx;
+    
+    @ToString.Exclude
+    @Column(nullable = false, columnDefinition = "BYTEA")
+    private byte[] data;
+    
+    @Column(name = "size_bytes", nullable = false)
+    private long sizeBytes;
+    
+    @Column(name = "mime_type", length = 50, nullable = false)
+    private String mimeType;
+    
+    @Column(name = "content_hash", length = 64, nullable = false)
+    private String contentHash;
+    
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = LocalDateTime.now();
+    }
+    
+    // Variants are replaced rather than updated, so their creation is their last modification
+    @Override
+    public LocalDateTime getUpdatedAt() {
+        return createdAt;
+    }
+    
+    // Variants are raster images and never get a gzip copy
+    @Override
+    public Long getGzipSizeBytes() {
+        return null;
+    }
+}
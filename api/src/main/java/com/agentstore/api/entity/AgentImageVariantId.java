@@ -0,0 +1,19 @@
+package com.agentstore.api.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AgentImageVariantId implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private String agentId;
+    
+    private int sizePx;
+}
@@ -0,0 +1,20 @@
+package com.agentstore.api.entity;
+
+/**
+ * Progress of the downscaled variant pipeline for a stored agent image
+ */
+public enum ImageVariantStatus {
+    
+    // Waiting for the background pipeline to pick the image up
+    PENDING,
+    
+    PROCESSING,
+    
+    // Variants and placeholder are stored and can be served
+    READY,
+    
+    FAILED,
+    
+    // The format cannot be rasterized (e.g. SVG), only the original is served
+    UNSUPPORTED
+}
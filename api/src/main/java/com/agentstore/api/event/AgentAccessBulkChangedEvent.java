@@ -0,0 +1,22 @@
+package com.agentstore.api.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Published when agents are granted to or revoked from a slice of users in one statement
+ * Once committed, every user of the slice holds every granted agent and none of the revoked ones.
+ */
+@Getter
+@RequiredArgsConstructor
+public class AgentAccessBulkChangedEvent {
+    
+    private final Collection<Long> userIds;
+    
+    private final Set<String> grantedAgentIds;
+    
+    private final Set<String> revokedAgentIds;
+}
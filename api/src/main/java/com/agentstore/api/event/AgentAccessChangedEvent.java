@@ -0,0 +1,20 @@
+package com.agentstore.api.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Set;
+
+/**
+ * Published when agents are granted to or revoked from a user
+ */
+@Getter
+@RequiredArgsConstructor
+public class AgentAccessChangedEvent {
+    
+    private final Long userId;
+    
+    private final Set<String> grantedAgentIds;
+    
+    private final Set<String> revokedAgentIds;
+}
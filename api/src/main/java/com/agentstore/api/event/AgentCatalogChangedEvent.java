@@ -0,0 +1,22 @@
+package com.agentstore.api.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published when an agent or anything shown in the agent listing changes, so cached catalogs can be rebuilt
+ */
+@Getter
+@RequiredArgsConstructor
+public class AgentCatalogChangedEvent {
+    
+    // Null when a bulk operation changed many agents at once
+    private final String agentId;
+    
+    // Whether the agent was just created rather than updated
+    private final boolean created;
+    
+    public AgentCatalogChangedEvent(String agentId) {
+        this(agentId, false);
+    }
+}
@@ -0,0 +1,17 @@
+package com.agentstore.api.event;
+
+import com.agentstore.api.entity.AgentChange;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Published once committed change log entries have been given their versions, listed in version order
+ */
+@Getter
+@RequiredArgsConstructor
+public class AgentChangesSequencedEvent {
+    
+    private final List<AgentChange> changes;
+}
@@ -0,0 +1,14 @@
+package com.agentstore.api.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published when an agent is deleted, together with every access grant to it
+ */
+@Getter
+@RequiredArgsConstructor
+public class AgentDeletedEvent {
+    
+    private final String agentId;
+}
@@ -0,0 +1,15 @@
+package com.agentstore.api.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published when a health probe changed what the agent listing shows; health is kept in memory, not logged
+ */
+@Getter
+@RequiredArgsConstructor
+public class AgentHealthChangedEvent {
+    
+    // Null when many agents changed at once
+    private final String agentId;
+}
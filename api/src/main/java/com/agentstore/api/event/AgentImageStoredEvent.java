@@ -0,0 +1,16 @@
+package com.agentstore.api.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published when an agent image is created or replaced
+ */
+@Getter
+@RequiredArgsConstructor
+public class AgentImageStoredEvent {
+    
+    private final String agentId;
+    
+    private final String contentHash;
+}
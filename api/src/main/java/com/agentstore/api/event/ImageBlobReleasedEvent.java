@@ -0,0 +1,14 @@
+package com.agentstore.api.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published when the last reference to an image blob is dropped, so the store can delete its bytes
+ */
+@Getter
+@RequiredArgsConstructor
+public class ImageBlobReleasedEvent {
+    
+    private final String contentHash;
+}
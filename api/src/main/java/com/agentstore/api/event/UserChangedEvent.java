@@ -0,0 +1,14 @@
+package com.agentstore.api.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published when a user is created, or their account details or roles change
+ */
+@Getter
+@RequiredArgsConstructor
+public class UserChangedEvent {
+    
+    private final Long userId;
+}
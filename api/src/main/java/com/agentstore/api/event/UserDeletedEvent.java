@@ -0,0 +1,14 @@
+package com.agentstore.api.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published when a user is deleted, together with every access grant of the user
+ */
+@Getter
+@RequiredArgsConstructor
+public class UserDeletedEvent {
+    
+    private final Long userId;
+}
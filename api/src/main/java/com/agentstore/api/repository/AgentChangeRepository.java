@@ -0,0 +1,41 @@
+package com.agentstore.api.repository;
+
+import com.agentstore.api.entity.AgentChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AgentChangeRepository extends JpaRepository<AgentChange, Long> {
+    
+    // Find the version of the last committed change, 0 if nothing changed yet
+    @Query("SELECT coalesce(max(c.version), 0) FROM AgentChange c")
+    long findLatestVersion();
+    
+    // Find the version of the oldest change still kept, null if the log is empty
+    @Query("SELECT min(c.version) FROM AgentChange c")
+    Long findOldestVersion();
+    
+    // Find the changes in a version range that every user may see, or that concern a specific user
+    @Query("SELECT c FROM AgentChange c WHERE c.version > :since AND c.version <= :upTo " +
+            "AND (c.userId IS NULL OR c.userId = :userId) ORDER BY c.version ASC")
+    List<AgentChange> findChanges(@Param("userId") Long userId, @Param("since") long since, @Param("upTo") long upTo);
+    
+    // Give versions to committed changes that have none, in the order they were logged
+    // Runs in its own read-write transaction, which holds the sequencer lock until it commits
+    @Transactional
+    @Query(value = "SELECT * FROM sequence_agent_changes(:limit)", nativeQuery = true)
+    List<AgentChange> sequenceChanges(@Param("limit") int limit);
+    
+    // Delete changes older than the retention period, always keeping the latest one
+    @Modifying
+    @Query("DELETE FROM AgentChange c WHERE c.changedAt < :before " +
+            "AND c.version < (SELECT max(l.version) FROM AgentChange l)")
+    int deleteChangedBefore(@Param("before") LocalDateTime before);
+}
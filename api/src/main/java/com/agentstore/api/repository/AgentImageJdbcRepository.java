@@ -0,0 +1,26 @@
+package com.agentstore.api.repository;
+
+import java.util.Optional;
+
+/**
+ * JDBC access to agent image rows, bypassing entity materialization
+ */
+public interface AgentImageJdbcRepository {
+    
+    /**
+     * Creates or replaces the image metadata of an agent
+     * Variant status is reset to PENDING and the placeholder cleared; the referenced blob must already exist
+     * @param agentId The agent ID
+     * @param mimeType The validated MIME type of the image
+     * @param contentHash The hex encoded SHA-256 of the image bytes
+     * @param size The number of bytes in the image
+     */
+    void upsertImageMetadata(String agentId, String mimeType, String contentHash, long size);
+    
+    /**
+     * Deletes the image of an agent, along with its variants
+     * @param agentId The agent ID
+     * @return The content hash of the deleted image, or empty if the agent had no image
+     */
+    Optional<String> deleteImage(String agentId);
+}
@@ -0,0 +1,31 @@
+package com.agentstore.api.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class AgentImageJdbcRepositoryImpl implements AgentImageJdbcRepository {
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public void upsertImageMetadata(String agentId, String mimeType, String contentHash, long size) {
+        jdbcTemplate.update("INSERT INTO agent_images (agent_id, size_bytes, mime_type, content_hash, " +
+                "variant_status, placeholder, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, 'PENDING', NULL, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP) " +
+                "ON CONFLICT (agent_id) DO UPDATE SET size_bytes = EXCLUDED.size_bytes, " +
+                "mime_type = EXCLUDED.mime_type, content_hash = EXCLUDED.content_hash, " +
+                "variant_status = EXCLUDED.variant_status, placeholder = NULL, updated_at = CURRENT_TIMESTAMP",
+                agentId, size, mimeType, contentHash);
+    }
+    
+    @Override
+    public Optional<String> deleteImage(String agentId) {
+        List<String> contentHash = jdbcTemplate.queryForList(
+                "DELETE FROM agent_images WHERE agent_id = ? RETURNING content_hash", String.class, agentId);
+        return contentHash.stream().findFirst();
+    }
+}
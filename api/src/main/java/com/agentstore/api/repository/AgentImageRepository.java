@@ -0,0 +1,48 @@
+package com.agentstore.api.repository;
+
+import com.agentstore.api.entity.AgentImage;
+import com.agentstore.api.entity.ImageVariantStatus;
+import com.agentstore.api.repository.projection.AgentImageMetadata;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AgentImageRepository extends JpaRepository<AgentImage, String>, AgentImageJdbcRepository {
+    
+    // Find image metadata without selecting the image bytes
+    @Query("SELECT i.agentId AS agentId, i.mimeType AS mimeType, i.sizeBytes AS sizeBytes, " +
+            "i.contentHash AS contentHash, i.updatedAt AS updatedAt, i.gzipSizeBytes AS gzipSizeBytes FROM AgentImage i WHERE i.agentId = :agentId")
+    Optional<AgentImageMetadata> findMetadataByAgentId(@Param("agentId") String agentId);
+    
+    // Find the metadata of every stored image
+    @Query("SELECT i.agentId AS agentId, i.mimeType AS mimeType, i.sizeBytes AS sizeBytes, " +
+            "i.contentHash AS contentHash, i.updatedAt AS updatedAt, i.gzipSizeBytes AS gzipSizeBytes FROM AgentImage i ORDER BY i.agentId")
+    List<AgentImageMetadata> findAllMetadataBy();
+    
+    // Find images whose variants still have to be generated
+    @Query("SELECT i.agentId AS agentId, i.mimeType AS mimeType, i.sizeBytes AS sizeBytes, " +
+            "i.contentHash AS contentHash, i.updatedAt AS updatedAt, i.gzipSizeBytes AS gzipSizeBytes FROM AgentImage i " +
+            "WHERE i.variantStatus IN :statuses")
+    List<AgentImageMetadata> findMetadataByVariantStatusIn(@Param("statuses") Collection<ImageVariantStatus> statuses);
+    
+    // Correct the MIME type of an image whose bytes did not change, keeping its variants
+    @Modifying
+    @Query("UPDATE AgentImage i SET i.mimeType = :mimeType, i.updatedAt = CURRENT_TIMESTAMP WHERE i.agentId = :agentId")
+    int updateMimeType(@Param("agentId") String agentId, @Param("mimeType") String mimeType);
+    
+    // Record the variant pipeline outcome, only if the image has not been replaced in the meantime
+    @Modifying
+    @Query("UPDATE AgentImage i SET i.variantStatus = :status, i.placeholder = :placeholder " +
+            "WHERE i.agentId = :agentId AND i.contentHash = :contentHash")
+    int updateVariantStatus(@Param("agentId") String agentId,
+                            @Param("contentHash") String contentHash,
+                            @Param("status") ImageVariantStatus status,
+                            @Param("placeholder") String placeholder);
+}
@@ -0,0 +1,22 @@
+package com.agentstore.api.repository;
+
+import com.agentstore.api.entity.AgentImageVariant;
+import com.agentstore.api.entity.AgentImageVariantId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface AgentImageVariantRepository extends JpaRepository<AgentImageVariant, AgentImageVariantId> {
+    
+    Optional<AgentImageVariant> findByAgentIdAndSizePx(String agentId, int sizePx);
+    
+    // Remove all variants of an agent image, e.g. when the image is replaced
+    @Modifying
+    @Query("DELETE FROM AgentImageVariant v WHERE v.agentId = :agentId")
+    int deleteByAgentId(@Param("agentId") String agentId);
+}
@@ -0,0 +1,55 @@
+package com.agentstore.api.repository;
+
+import com.agentstore.api.entity.Agent;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * JDBC access to agent rows for bulk operations, bypassing entity materialization
+ */
+public interface AgentJdbcRepository {
+    
+    /**
+     * Creates or updates agents in a single JDBC batch
+     * Existing agents keep their creation date; the image of an agent is never touched. Agents whose columns are
+     * already as given are not written at all, so they keep their updated_at and reach no change log or stream.
+     * @param agents The agents to write, identified by their ID
+     * @return The number of agents actually created or changed
+     */
+    int upsertAgents(List<Agent> agents);
+    
+    /**
+     * Reads every agent in (created_at, id) order through a server-side cursor
+     * Must run inside a transaction, otherwise the driver loads the whole result at once
+     * @param fetchSize The number of rows fetched per round trip
+     * @param action Called with each agent; the instances are detached and not managed by JPA
+     */
+    void forEachAgent(int fetchSize, Consumer<Agent> action);
+    
+    /**
+     * Grants agents to a user in a single statement; grants that already exist are left alone
+     * @return The IDs of the agents that were actually granted
+     */
+    Set<String> insertAccessGrants(Long userId, Collection<String> agentIds);
+    
+    /**
+     * Revokes agents from a user in a single statement
+     * @return The IDs of the agents that were actually revoked
+     */
+    Set<String> deleteAccessGrants(Long userId, Collection<String> agentIds);
+    
+    /**
+     * Grants every agent to every user in a single statement; grants that already exist are left alone
+     * @return The number of grants inserted
+     */
+    long insertAccessMatrix(Collection<Long> userIds, Collection<String> agentIds);
+    
+    /**
+     * Revokes every agent from every user in a single statement
+     * @return The number of grants deleted
+     */
+    long deleteAccessMatrix(Collection<Long> userIds, Collection<String> agentIds);
+}
@@ -0,0 +1,120 @@
+package com.agentstore.api.repository;
+
+import com.agentstore.api.entity.Agent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+@RequiredArgsConstructor
+public class AgentJdbcRepositoryImpl implements AgentJdbcRepository {
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public int upsertAgents(List<Agent> agents) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        // Unchanged rows are skipped by the WHERE clause and report an update count of 0
+        int[][] updateCounts = jdbcTemplate.batchUpdate(
+                "INSERT INTO agents (id, title, description, link_url, port, created_at, updated_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+                        "ON CONFLICT (id) DO UPDATE SET title = EXCLUDED.title, description = EXCLUDED.description, " +
+                        "link_url = EXCLUDED.link_url, port = EXCLUDED.port, updated_at = EXCLUDED.updated_at " +
+                        "WHERE (agents.title, agents.description, agents.link_url, agents.port) " +
+                        "IS DISTINCT FROM (EXCLUDED.title, EXCLUDED.description, EXCLUDED.link_url, EXCLUDED.port)",
+                agents, agents.size(), (ps, agent) -> {
+                    ps.setString(1, agent.getId());
+                    ps.setString(2, agent.getTitle());
+                    ps.setString(3, agent.getDescription());
+                    ps.setString(4, agent.getLinkUrl());
+                    ps.setString(5, agent.getPort());
+                    ps.setTimestamp(6, now);
+                    ps.setTimestamp(7, now);
+                });
+        
+        int changed = 0;
+        for (int[] batch : updateCounts) {
+            for (int count : batch) {
+                changed += Math.max(count, 0);
+            }
+        }
+        return changed;
+    }
+    
+    @Override
+    public Set<String> insertAccessGrants(Long userId, Collection<String> agentIds) {
+        return queryAgentIds("INSERT INTO user_agent_access (user_id, agent_id) SELECT ?, unnest(?) " +
+                "ON CONFLICT DO NOTHING RETURNING agent_id", userId, agentIds);
+    }
+    
+    @Override
+    public Set<String> deleteAccessGrants(Long userId, Collection<String> agentIds) {
+        return queryAgentIds("DELETE FROM user_agent_access WHERE user_id = ? AND agent_id = ANY(?) RETURNING agent_id",
+                userId, agentIds);
+    }
+    
+    @Override
+    public long insertAccessMatrix(Collection<Long> userIds, Collection<String> agentIds) {
+        return updateAccessMatrix("INSERT INTO user_agent_access (user_id, agent_id) " +
+                "SELECT u.id, a.id FROM unnest(?) AS u(id) CROSS JOIN unnest(?) AS a(id) " +
+                "ON CONFLICT DO NOTHING", userIds, agentIds);
+    }
+    
+    @Override
+    public long deleteAccessMatrix(Collection<Long> userIds, Collection<String> agentIds) {
+        return updateAccessMatrix("DELETE FROM user_agent_access WHERE user_id = ANY(?) AND agent_id = ANY(?)",
+                userIds, agentIds);
+    }
+    
+    @Override
+    public void forEachAgent(int fetchSize, Consumer<Agent> action) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "SELECT id, title, description, link_url, port, created_at, updated_at " +
+                            "FROM agents ORDER BY created_at ASC, id ASC");
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, rs -> {
+            action.accept(Agent.builder()
+                    .id(rs.getString("id"))
+                    .title(rs.getString("title"))
+                    .description(rs.getString("description"))
+                    .linkUrl(rs.getString("link_url"))
+                    .port(rs.getString("port"))
+                    .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                    .updatedAt(rs.getTimestamp("updated_at").toLocalDateTime())
+                    .build());
+        });
+    }
+    
+    /**
+     * Run a statement bound to a user ID and an array of agent IDs, collecting the agent IDs it returns
+     */
+    private Set<String> queryAgentIds(String sql, Long userId, Collection<String> agentIds) {
+        return new HashSet<>(jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setLong(1, userId);
+            statement.setArray(2, connection.createArrayOf("varchar", agentIds.toArray()));
+            return statement;
+        }, (rs, rowNum) -> rs.getString(1)));
+    }
+    
+    /**
+     * Run a statement bound to an array of user IDs and an array of agent IDs, returning its update count
+     */
+    private long updateAccessMatrix(String sql, Collection<Long> userIds, Collection<String> agentIds) {
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setArray(1, connection.createArrayOf("bigint", userIds.toArray()));
+            statement.setArray(2, connection.createArrayOf("varchar", agentIds.toArray()));
+            return statement;
+        });
+    }
+}
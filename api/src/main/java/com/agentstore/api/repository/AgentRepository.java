@@ -1,6 +1,9 @@
 package com.agentstore.api.repository;
 
 import com.agentstore.api.entity.Agent;
+import com.agentstore.api.repository.projection.AgentAccessGrant;
+import com.agentstore.api.repository.projection.AgentProbeTarget;
+import com.agentstore.api.repository.projection.AgentSummary;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -8,10 +11,13 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface AgentRepository extends JpaRepository<Agent, String> {
+public interface AgentRepository extends JpaRepository<Agent, String>, AgentJdbcRepository {
     
     // Find all agents associated with a specific user
     @Query("SELECT a FROM Agent a JOIN a.usersWithAccess u WHERE u.id = :userId")
@@ -37,4 +43,115 @@ public interface AgentRepository extends JpaRepository<Agent, String> {
     // Find all agents associated with a specific user with pagination ordered by creation date
     @Query("SELECT a FROM Agent a JOIN a.usersWithAccess u WHERE u.id = :userId ORDER BY a.createdAt ASC")
     Page<Agent> findAllByUserIdOrderByCreatedAtAsc(@Param("userId") Long userId, Pageable pageable);
-} 
\ No newline at end of file
+    
+    // Listing queries: select agent columns and image metadata, never the image bytes
+    String SUMMARY_SELECT = "SELECT a.id AS id, a.title AS title, a.description AS description, " +
+            "a.linkUrl AS linkUrl, a.port AS port, a.createdAt AS createdAt, a.updatedAt AS updatedAt, " +
+            "i.mimeType AS mimeType, i.contentHash AS imageHash, i.variantStatus AS imageStatus, " +
+            "i.placeholder AS imagePlaceholder FROM Agent a ";
+    
+    // Find summaries of all agents ordered by creation date
+    @Query(SUMMARY_SELECT + "LEFT JOIN AgentImage i ON i.agentId = a.id ORDER BY a.createdAt ASC, a.id ASC")
+    List<AgentSummary> findAllSummariesByOrderByCreatedAtAsc();
+    
+    // Find summaries of all agents with pagination ordered by creation date
+    @Query(value = SUMMARY_SELECT + "LEFT JOIN AgentImage i ON i.agentId = a.id ORDER BY a.createdAt ASC",
+            countQuery = "SELECT count(a) FROM Agent a")
+    Page<AgentSummary> findAllSummariesByOrderByCreatedAtAsc(Pageable pageable);
+    
+    // Find summaries of all agents associated with a specific user ordered by creation date
+    @Query(SUMMARY_SELECT + "JOIN a.usersWithAccess u LEFT JOIN AgentImage i ON i.agentId = a.id " +
+            "WHERE u.id = :userId ORDER BY a.createdAt ASC")
+    List<AgentSummary> findAllSummariesByUserIdOrderByCreatedAtAsc(@Param("userId") Long userId);
+    
+    // Find summaries of all agents associated with a specific user with pagination ordered by creation date
+    @Query(value = SUMMARY_SELECT + "JOIN a.usersWithAccess u LEFT JOIN AgentImage i ON i.agentId = a.id " +
+            "WHERE u.id = :userId ORDER BY a.createdAt ASC",
+            countQuery = "SELECT count(a) FROM Agent a JOIN a.usersWithAccess u WHERE u.id = :userId")
+    Page<AgentSummary> findAllSummariesByUserIdOrderByCreatedAtAsc(@Param("userId") Long userId, Pageable pageable);
+    
+    // Find the first summaries in (createdAt, id) order, limited by the pageable without a count query
+    @Query(SUMMARY_SELECT + "LEFT JOIN AgentImage i ON i.agentId = a.id ORDER BY a.createdAt ASC, a.id ASC")
+    List<AgentSummary> findSummariesOrderByCreatedAtAndId(Pageable pageable);
+    
+    // Find the summaries that follow a (createdAt, id) position, seeking through idx_agents_created_at_id
+    @Query(SUMMARY_SELECT + "LEFT JOIN AgentImage i ON i.agentId = a.id " +
+            "WHERE (a.createdAt, a.id) > (:createdAt, :id) ORDER BY a.createdAt ASC, a.id ASC")
+    List<AgentSummary> findSummariesAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") String id,
+                                          Pageable pageable);
+    
+    // Find the first summaries of a user's agents in (createdAt, id) order
+    @Query(SUMMARY_SELECT + "JOIN a.usersWithAccess u LEFT JOIN AgentImage i ON i.agentId = a.id " +
+            "WHERE u.id = :userId ORDER BY a.createdAt ASC, a.id ASC")
+    List<AgentSummary> findSummariesByUserIdOrderByCreatedAtAndId(@Param("userId") Long userId, Pageable pageable);
+    
+    // Find the summaries of a user's agents that follow a (createdAt, id) position
+    @Query(SUMMARY_SELECT + "JOIN a.usersWithAccess u LEFT JOIN AgentImage i ON i.agentId = a.id " +
+            "WHERE u.id = :userId AND (a.createdAt, a.id) > (:createdAt, :id) ORDER BY a.createdAt ASC, a.id ASC")
+    List<AgentSummary> findSummariesByUserIdAfter(@Param("userId") Long userId,
+                                                  @Param("createdAt") LocalDateTime createdAt,
+                                                  @Param("id") String id, Pageable pageable);
+    
+    // Count the agents associated with a specific user
+    @Query("SELECT count(a) FROM Agent a JOIN a.usersWithAccess u WHERE u.id = :userId")
+    long countByUserId(@Param("userId") Long userId);
+    
+    // Lock the row of an agent until the transaction ends, before anything of its image is locked
+    @Query(value = "SELECT id FROM agents WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<String> lockById(@Param("id") String id);
+    
+    // Find the summary of one agent, with the metadata of its image
+    @Query(SUMMARY_SELECT + "LEFT JOIN AgentImage i ON i.agentId = a.id WHERE a.id = :id")
+    Optional<AgentSummary> findSummaryById(@Param("id") String id);
+    
+    // Find summaries of specific agents, in no particular order
+    @Query(SUMMARY_SELECT + "LEFT JOIN AgentImage i ON i.agentId = a.id WHERE a.id IN :ids")
+    List<AgentSummary> findAllSummariesByIdIn(@Param("ids") Collection<String> ids);
+    
+    // Rank agents matching a web search style query through the idx_agents_search GIN index
+    @Query(value = "SELECT a.id FROM agents a CROSS JOIN websearch_to_tsquery('english', :query) q " +
+            "WHERE a.search_vector @@ q " +
+            "ORDER BY ts_rank(a.search_vector, q) DESC, a.created_at ASC, a.id ASC LIMIT :limit",
+            nativeQuery = true)
+    List<String> searchIds(@Param("query") String query, @Param("limit") int limit);
+    
+    // Rank the agents of a specific user matching a web search style query
+    @Query(value = "SELECT a.id FROM agents a JOIN user_agent_access x ON x.agent_id = a.id " +
+            "CROSS JOIN websearch_to_tsquery('english', :query) q " +
+            "WHERE x.user_id = :userId AND a.search_vector @@ q " +
+            "ORDER BY ts_rank(a.search_vector, q) DESC, a.created_at ASC, a.id ASC LIMIT :limit",
+            nativeQuery = true)
+    List<String> searchIdsByUserId(@Param("userId") Long userId, @Param("query") String query,
+                                   @Param("limit") int limit);
+    
+    // Find the link and port of every agent, for the health prober
+    @Query("SELECT a.id AS id, a.linkUrl AS linkUrl, a.port AS port FROM Agent a")
+    List<AgentProbeTarget> findAllProbeTargets();
+    
+    // Check a single access grant with a primary key lookup, without loading users or agents
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM user_agent_access WHERE user_id = :userId AND agent_id = :agentId)",
+            nativeQuery = true)
+    boolean existsAccessGrant(@Param("userId") Long userId, @Param("agentId") String agentId);
+    
+    // Find the IDs of the agents a user has been granted access to, reading only the join table
+    @Query(value = "SELECT agent_id FROM user_agent_access WHERE user_id = :userId", nativeQuery = true)
+    List<String> findAgentIdsByUserId(@Param("userId") Long userId);
+    
+    // Find which of the given agent IDs exist
+    @Query("SELECT a.id FROM Agent a WHERE a.id IN :ids")
+    List<String> findExistingIds(@Param("ids") Collection<String> ids);
+    
+    // Find which of the given agents a user has been granted access to
+    @Query(value = "SELECT agent_id FROM user_agent_access WHERE user_id = :userId AND agent_id IN :agentIds",
+            nativeQuery = true)
+    List<String> findAccessibleAgentIds(@Param("userId") Long userId, @Param("agentIds") Collection<String> agentIds);
+    
+    // Find the access grants of the given users, reading only the join table
+    @Query(value = "SELECT user_id AS userId, agent_id AS agentId FROM user_agent_access WHERE user_id IN (:userIds)",
+            nativeQuery = true)
+    List<AgentAccessGrant> findAccessGrantsByUserIds(@Param("userIds") Collection<Long> userIds);
+    
+    // Find every access grant, reading only the join table, never users or agents
+    @Query(value = "SELECT user_id AS userId, agent_id AS agentId FROM user_agent_access", nativeQuery = true)
+    List<AgentAccessGrant> findAllAccessGrants();
+}
@@ -0,0 +1,68 @@
+package com.agentstore.api.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Reference counting of the shared image_blobs rows
+ * All methods must run inside the caller's transaction
+ */
+@Repository
+@RequiredArgsConstructor
+public class ImageBlobRepository {
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    /**
+     * Serialize blob creation and removal for one hash until the transaction ends
+     * Row locks cannot cover a blob that does not exist yet, so an advisory lock on the hash is used
+     * Lock order: the agents row, if any, then this lock, then image_blobs and agent_images rows
+     */
+    public void lock(String contentHash) {
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(hashtextextended(?, 0))", rs -> null, contentHash);
+    }
+    
+    /**
+     * Add a reference to a blob, creating it if needed
+     * @return true if the blob was created and its bytes still have to be written
+     */
+    public boolean acquire(String contentHash, long size) {
+        Integer refCount = jdbcTemplate.queryForObject("INSERT INTO image_blobs (content_hash, size_bytes, ref_count) " +
+                "VALUES (?, ?, 1) ON CONFLICT (content_hash) DO UPDATE SET ref_count = image_blobs.ref_count + 1 " +
+                "RETURNING ref_count", Integer.class, contentHash, size);
+        // Blobs are deleted when their count reaches zero, so a count of one means the row was just inserted
+        return refCount != null && refCount == 1;
+    }
+    
+    /**
+     * Drop a reference to a blob, deleting the blob row once nothing references it
+     * @return true if the blob was deleted
+     */
+    public boolean release(String contentHash) {
+        List<Integer> refCount = jdbcTemplate.queryForList("UPDATE image_blobs SET ref_count = ref_count - 1 " +
+                "WHERE content_hash = ? RETURNING ref_count", Integer.class, contentHash);
+        if (refCount.isEmpty() || refCount.get(0) > 0) {
+            return false;
+        }
+        
+        return jdbcTemplate.update("DELETE FROM image_blobs WHERE content_hash = ? AND ref_count = 0", contentHash) > 0;
+    }
+    
+    /**
+     * Record the size of the gzip compressed copy stored for a blob
+     */
+    public void updateGzipSize(String contentHash, long size) {
+        jdbcTemplate.update("UPDATE image_blobs SET gzip_size_bytes = ? WHERE content_hash = ?", size, contentHash);
+    }
+    
+    /**
+     * Check whether a blob is still referenced
+     */
+    public boolean exists(String contentHash) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM image_blobs WHERE content_hash = ?)", Boolean.class, contentHash));
+    }
+}
@@ -2,12 +2,20 @@ package com.agentstore.api.repository;
 
 import com.agentstore.api.entity.Role;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface RoleRepository extends JpaRepository<Role, Long> {
     
     Optional<Role> findByName(String name);
+    
+    // Find which of the given role names exist
+    @Query("SELECT r.name FROM Role r WHERE r.name IN :names")
+    List<String> findExistingNames(@Param("names") Collection<String> names);
 } 
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.agentstore.api.repository;
+
+import com.agentstore.api.dto.UserFilter;
+import com.agentstore.api.repository.projection.UserSummary;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * JDBC access to user rows for filtered listings, where the WHERE clause depends on the filters in use
+ */
+public interface UserJdbcRepository {
+    
+    /**
+     * Finds the users matching a filter in (created_at, id) order, seeking past a position
+     * Only the filters that are set end up in the statement, so each combination gets its own plan and index
+     * @param afterCreatedAt The creation date of the last user seen, null for the first page
+     * @param afterId The ID of the last user seen, ignored for the first page
+     * @param limit The maximum number of users returned
+     */
+    List<UserSummary> findSummaries(UserFilter filter, LocalDateTime afterCreatedAt, Long afterId, int limit);
+    
+    /**
+     * Counts the users matching a filter
+     */
+    long countSummaries(UserFilter filter);
+    
+    /**
+     * Reads every user through a server-side cursor, in no particular order
+     * Must run inside a transaction, otherwise the driver loads the whole result at once
+     * @param fetchSize The number of rows fetched per round trip
+     */
+    void forEachUserSummary(int fetchSize, Consumer<UserSummary> action);
+}
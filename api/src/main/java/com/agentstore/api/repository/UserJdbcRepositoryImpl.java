@@ -0,0 +1,112 @@
+package com.agentstore.api.repository;
+
+import com.agentstore.api.dto.UserFilter;
+import com.agentstore.api.repository.projection.UserSummary;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+@RequiredArgsConstructor
+public class UserJdbcRepositoryImpl implements UserJdbcRepository {
+    
+    private static final String SUMMARY_SELECT =
+            "SELECT u.id, u.username, u.email, u.enabled, u.created_at, u.updated_at FROM users u";
+    
+    private static final RowMapper<UserSummary> SUMMARY_MAPPER = (rs, rowNum) -> new UserSummaryRow(
+            rs.getLong("id"),
+            rs.getString("username"),
+            rs.getString("email"),
+            rs.getBoolean("enabled"),
+            rs.getTimestamp("created_at").toLocalDateTime(),
+            rs.getTimestamp("updated_at").toLocalDateTime());
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public List<UserSummary> findSummaries(UserFilter filter, LocalDateTime afterCreatedAt, Long afterId, int limit) {
+        StringBuilder sql = new StringBuilder(SUMMARY_SELECT + " WHERE TRUE");
+        List<Object> args = new ArrayList<>();
+        if (!appendFilter(sql, args, filter)) {
+            return List.of();
+        }
+        if (afterCreatedAt != null) {
+            // A row value comparison seeks straight through (created_at, id) indexes
+            sql.append(" AND (u.created_at, u.id) > (?, ?)");
+            args.add(Timestamp.valueOf(afterCreatedAt));
+            args.add(afterId);
+        }
+        sql.append(" ORDER BY u.created_at ASC, u.id ASC LIMIT ?");
+        args.add(limit);
+        
+        return jdbcTemplate.query(sql.toString(), SUMMARY_MAPPER, args.toArray());
+    }
+    
+    @Override
+    public long countSummaries(UserFilter filter) {
+        StringBuilder sql = new StringBuilder("SELECT count(*) FROM users u WHERE TRUE");
+        List<Object> args = new ArrayList<>();
+        if (!appendFilter(sql, args, filter)) {
+            return 0;
+        }
+        
+        Long count = jdbcTemplate.queryForObject(sql.toString(), Long.class, args.toArray());
+        return count != null ? count : 0;
+    }
+    
+    @Override
+    public void forEachUserSummary(int fetchSize, Consumer<UserSummary> action) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SUMMARY_SELECT);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, (RowCallbackHandler) rs -> action.accept(SUMMARY_MAPPER.mapRow(rs, rs.getRow())));
+    }
+    
+    /**
+     * Append the WHERE conditions of the filters that are set
+     * @return false if no user can match, such as for an unknown role
+     */
+    private boolean appendFilter(StringBuilder sql, List<Object> args, UserFilter filter) {
+        if (filter.getEnabled() != null) {
+            sql.append(" AND u.enabled = ?");
+            args.add(filter.getEnabled());
+        }
+        if (filter.getRole() != null) {
+            // Bound by ID rather than joined by name, so the planner sees how common the role is and starts from
+            // idx_user_roles_role_id for a rare one instead of walking every user
+            List<Long> roleIds = jdbcTemplate.queryForList("SELECT id FROM roles WHERE name = ?", Long.class,
+                    filter.getRole());
+            if (roleIds.isEmpty()) {
+                return false;
+            }
+            sql.append(" AND EXISTS (SELECT 1 FROM user_roles ur WHERE ur.user_id = u.id AND ur.role_id = ?)");
+            args.add(roleIds.get(0));
+        }
+        if (filter.getAgentId() != null) {
+            sql.append(" AND EXISTS (SELECT 1 FROM user_agent_access a WHERE a.user_id = u.id AND a.agent_id = ?)");
+            args.add(filter.getAgentId());
+        }
+        return true;
+    }
+    
+    @Getter
+    @RequiredArgsConstructor
+    private static final class UserSummaryRow implements UserSummary {
+        
+        private final Long id;
+        private final String username;
+        private final String email;
+        private final boolean enabled;
+        private final LocalDateTime createdAt;
+        private final LocalDateTime updatedAt;
+    }
+}
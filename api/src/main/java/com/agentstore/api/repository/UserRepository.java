@@ -1,14 +1,19 @@
 package com.agentstore.api.repository;
 
 import com.agentstore.api.entity.User;
+import com.agentstore.api.repository.projection.UserRoleName;
+import com.agentstore.api.repository.projection.UserSummary;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserJdbcRepository {
     
     Optional<User> findByUsername(String username);
     
@@ -20,4 +25,30 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     // Find all users ordered by creation date (oldest first)
     List<User> findAllByOrderByCreatedAtAsc();
-} 
\ No newline at end of file
+    
+    // Find the columns of all users in the (created_at, id) order of the user pages, without loading roles or agents
+    @Query("SELECT u.id AS id, u.username AS username, u.email AS email, u.enabled AS enabled, " +
+            "u.createdAt AS createdAt, u.updatedAt AS updatedAt FROM User u ORDER BY u.createdAt ASC, u.id ASC")
+    List<UserSummary> findAllSummariesByOrderByCreatedAtAsc();
+    
+    // Find the columns of one user, without loading roles or agents
+    @Query("SELECT u.id AS id, u.username AS username, u.email AS email, u.enabled AS enabled, " +
+            "u.createdAt AS createdAt, u.updatedAt AS updatedAt FROM User u WHERE u.id = :id")
+    Optional<UserSummary> findSummaryById(@Param("id") Long id);
+    
+    // Find the role names of every user in a single query
+    @Query("SELECT u.id AS userId, r.name AS roleName FROM User u JOIN u.roles r")
+    List<UserRoleName> findAllRoleNames();
+    
+    // Find the role names of the given users in a single query
+    @Query("SELECT u.id AS userId, r.name AS roleName FROM User u JOIN u.roles r WHERE u.id IN :userIds")
+    List<UserRoleName> findRoleNamesByUserIds(@Param("userIds") Collection<Long> userIds);
+    
+    // Find which of the given user IDs exist
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+    
+    // Find the IDs of the users holding any of the given roles
+    @Query("SELECT DISTINCT u.id FROM User u JOIN u.roles r WHERE r.name IN :roleNames")
+    List<Long> findIdsByRoleNames(@Param("roleNames") Collection<String> roleNames);
+}
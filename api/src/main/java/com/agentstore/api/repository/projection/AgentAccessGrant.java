@@ -0,0 +1,11 @@
+package com.agentstore.api.repository.projection;
+
+/**
+ * One row of user_agent_access: a user that was granted access to an agent
+ */
+public interface AgentAccessGrant {
+    
+    Long getUserId();
+    
+    String getAgentId();
+}
@@ -0,0 +1,22 @@
+package com.agentstore.api.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Everything needed to describe a stored agent image without loading its bytes
+ */
+public interface AgentImageMetadata {
+    
+    String getAgentId();
+    
+    String getMimeType();
+    
+    long getSizeBytes();
+    
+    String getContentHash();
+    
+    LocalDateTime getUpdatedAt();
+    
+    // Size of the gzip compressed copy, null if there is none
+    Long getGzipSizeBytes();
+}
@@ -0,0 +1,13 @@
+package com.agentstore.api.repository.projection;
+
+/**
+ * Where an agent service can be reached, probed for its health
+ */
+public interface AgentProbeTarget {
+    
+    String getId();
+    
+    String getLinkUrl();
+    
+    String getPort();
+}
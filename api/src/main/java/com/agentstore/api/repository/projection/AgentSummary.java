@@ -0,0 +1,34 @@
+package com.agentstore.api.repository.projection;
+
+import com.agentstore.api.entity.ImageVariantStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Agent columns needed for catalog listings, without the image bytes
+ */
+public interface AgentSummary {
+    
+    String getId();
+    
+    String getTitle();
+    
+    String getDescription();
+    
+    String getLinkUrl();
+    
+    String getPort();
+    
+    LocalDateTime getCreatedAt();
+    
+    LocalDateTime getUpdatedAt();
+    
+    // MIME type and content hash of the agent image, null when the agent has no image
+    String getMimeType();
+    
+    String getImageHash();
+    
+    ImageVariantStatus getImageStatus();
+    
+    String getImagePlaceholder();
+}
@@ -0,0 +1,11 @@
+package com.agentstore.api.repository.projection;
+
+/**
+ * One row of user_roles, with the role name instead of its id
+ */
+public interface UserRoleName {
+    
+    Long getUserId();
+    
+    String getRoleName();
+}
@@ -0,0 +1,21 @@
+package com.agentstore.api.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * User columns needed for user listings, without the password or any collection
+ */
+public interface UserSummary {
+    
+    Long getId();
+    
+    String getUsername();
+    
+    String getEmail();
+    
+    boolean isEnabled();
+    
+    LocalDateTime getCreatedAt();
+    
+    LocalDateTime getUpdatedAt();
+}
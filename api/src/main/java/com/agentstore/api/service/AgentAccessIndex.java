@@ -0,0 +1,174 @@
+package com.agentstore.api.service;
+
+import com.agentstore.api.event.AgentAccessBulkChangedEvent;
+import com.agentstore.api.event.AgentAccessChangedEvent;
+import com.agentstore.api.event.AgentDeletedEvent;
+import com.agentstore.api.event.UserDeletedEvent;
+import com.agentstore.api.repository.AgentRepository;
+import com.agentstore.api.repository.projection.AgentAccessGrant;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * In-memory copy of user_agent_access that maps each user to a bitset of agent ordinals,
+ * so visibility checks need no database query.
+ * Published bitsets are never modified; every change swaps in an updated copy, which keeps reads lock-free.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AgentAccessIndex {
+    
+    private static final BitSet NO_AGENTS = new BitSet();
+    
+    private final AgentRepository agentRepository;
+    
+    private final Map<String, Integer> agentOrdinals = new ConcurrentHashMap<>();
+    private final Map<Long, BitSet> userAgents = new ConcurrentHashMap<>();
+    
+    // Guarded by this; ordinals of deleted agents are never reused, so stale bits can not grant access
+    private int nextOrdinal;
+    
+    private volatile boolean loaded;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        ensureLoaded();
+    }
+    
+    /**
+     * Check if a user has been granted access to an agent
+     */
+    public boolean hasAccess(Long userId, String agentId) {
+        if (!loaded) {
+            // Answered from the database until the index is warm, instead of loading every grant on this request
+            return agentRepository.existsAccessGrant(userId, agentId);
+        }
+        
+        return visibleTo(userId).test(agentId);
+    }
+    
+    /**
+     * Get a filter that accepts the ids of the agents a user has been granted access to
+     */
+    public Predicate<String> visibleTo(Long userId) {
+        ensureLoaded();
+        BitSet agents = userAgents.getOrDefault(userId, NO_AGENTS);
+        if (agents.isEmpty()) {
+            return agentId -> false;
+        }
+        
+        return agentId -> {
+            Integer ordinal = agentOrdinals.get(agentId);
+            return ordinal != null && agents.get(ordinal);
+        };
+    }
+    
+    /**
+     * Apply a committed grant or revoke
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onAccessChanged(AgentAccessChangedEvent event) {
+        if (!loaded) {
+            // The initial load reads the committed grants, including this one
+            return;
+        }
+        
+        update(event.getUserId(), event.getGrantedAgentIds(), event.getRevokedAgentIds());
+    }
+    
+    /**
+     * Apply a committed bulk grant or revoke to every user of its slice
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onAccessBulkChanged(AgentAccessBulkChangedEvent event) {
+        if (!loaded) {
+            return;
+        }
+        
+        for (Long userId : event.getUserIds()) {
+            update(userId, event.getGrantedAgentIds(), event.getRevokedAgentIds());
+        }
+    }
+    
+    // Runs just after the event stream has looked up who could see the agent
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onAgentDeleted(AgentDeletedEvent event) {
+        // Dropping the ordinal revokes the agent for every user at once
+        agentOrdinals.remove(event.getAgentId());
+    }
+    
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onUserDeleted(UserDeletedEvent event) {
+        userAgents.remove(event.getUserId());
+    }
+    
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        
+        synchronized (this) {
+            if (!loaded) {
+                load(agentRepository.findAllAccessGrants());
+                loaded = true;
+            }
+        }
+    }
+    
+    private void load(Collection<AgentAccessGrant> grants) {
+        Map<Long, BitSet> grantsByUser = new HashMap<>();
+        for (AgentAccessGrant grant : grants) {
+            grantsByUser.computeIfAbsent(grant.getUserId(), userId -> new BitSet())
+                    .set(ordinalOf(grant.getAgentId()));
+        }
+        
+        userAgents.putAll(grantsByUser);
+        log.info("Loaded agent access index with {} grants for {} users", grants.size(), grantsByUser.size());
+    }
+    
+    private int ordinalOf(String agentId) {
+        return agentOrdinals.computeIfAbsent(agentId, id -> nextOrdinal++);
+    }
+    
+    private void update(Long userId, Set<String> grantedAgentIds, Set<String> revokedAgentIds) {
+        BitSet updated = (BitSet) userAgents.getOrDefault(userId, NO_AGENTS).clone();
+        for (String agentId : grantedAgentIds) {
+            updated.set(ordinalOf(agentId));
+        }
+        for (String agentId : revokedAgentIds) {
+            Integer ordinal = agentOrdinals.get(agentId);
+            if (ordinal != null) {
+                updated.clear(ordinal);
+            }
+        }
+        
+        publish(userId, updated);
+    }
+    
+    private void publish(Long userId, BitSet agents) {
+        if (agents.isEmpty()) {
+            userAgents.remove(userId);
+        } else {
+            userAgents.put(userId, agents);
+        }
+    }
+}
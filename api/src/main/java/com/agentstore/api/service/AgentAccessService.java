@@ -0,0 +1,188 @@
+package com.agentstore.api.service;
+
+import com.agentstore.api.dto.AccessBulkAction;
+import com.agentstore.api.dto.AccessBulkRequest;
+import com.agentstore.api.dto.AccessBulkResult;
+import com.agentstore.api.event.AgentAccessBulkChangedEvent;
+import com.agentstore.api.event.AgentAccessChangedEvent;
+import com.agentstore.api.exception.ResourceNotFoundException;
+import com.agentstore.api.repository.AgentRepository;
+import com.agentstore.api.repository.RoleRepository;
+import com.agentstore.api.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Grants and revokes agents with set-based statements on user_agent_access, never loading users or agents
+ * Only the rows that actually changed are written and published, so the cost follows the size of the change.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AgentAccessService {
+    
+    private final AgentRepository agentRepository;
+    private final UserRepository userRepository;
+    private final RoleRepository roleRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    @Value("${app.access.bulk.users-per-statement:500}")
+    private int usersPerStatement;
+    
+    /**
+     * Grant agents to a user, keeping the agents already granted
+     * @return The grants that were actually added
+     */
+    @Transactional
+    public AgentAccessChangedEvent grant(Long userId, Collection<String> agentIds) {
+        Set<String> granted = new HashSet<>(agentIds);
+        requireUser(userId);
+        requireAgents(granted);
+        return apply(userId, granted, Set.of());
+    }
+    
+    /**
+     * Revoke agents from a user; agents that were not granted are ignored
+     * @return The grants that were actually removed
+     */
+    @Transactional
+    public AgentAccessChangedEvent revoke(Long userId, Collection<String> agentIds) {
+        Set<String> revoked = new HashSet<>(agentIds);
+        requireUser(userId);
+        requireAgents(revoked);
+        return apply(userId, Set.of(), revoked);
+    }
+    
+    /**
+     * Replace the agents granted to a user, writing only the difference with the current grants
+     * @return The grants that were added and removed
+     */
+    @Transactional
+    public AgentAccessChangedEvent replace(Long userId, Collection<String> agentIds) {
+        requireUser(userId);
+        
+        Set<String> current = new HashSet<>(agentRepository.findAgentIdsByUserId(userId));
+        Set<String> toGrant = new HashSet<>(agentIds);
+        toGrant.removeAll(current);
+        Set<String> toRevoke = new HashSet<>(current);
+        toRevoke.removeAll(agentIds);
+        
+        requireAgents(toGrant);
+        return apply(userId, toGrant, toRevoke);
+    }
+    
+    /**
+     * Grant or revoke every requested agent for every selected user in one transaction
+     * Users are written a slice at a time, each slice in a single statement, and one event is published per slice
+     * that actually changed, so memory and listener work follow the number of slices rather than of grants.
+     * Applying the same request twice changes nothing the second time. The logged changes take no lock, so other
+     * writers do not wait for a large request to commit.
+     */
+    @Transactional
+    public AccessBulkResult applyBulk(AccessBulkRequest request) {
+        boolean grant = request.getAction() == AccessBulkAction.GRANT;
+        Set<String> agentIds = new HashSet<>(request.getAgentIds());
+        requireAgents(agentIds);
+        List<Long> userIds = selectUsers(request);
+        
+        long changed = 0;
+        for (List<Long> slice : slices(userIds)) {
+            long sliceChanged = grant
+                    ? agentRepository.insertAccessMatrix(slice, agentIds)
+                    : agentRepository.deleteAccessMatrix(slice, agentIds);
+            if (sliceChanged > 0) {
+                eventPublisher.publishEvent(grant
+                        ? new AgentAccessBulkChangedEvent(slice, agentIds, Set.of())
+                        : new AgentAccessBulkChangedEvent(slice, Set.of(), agentIds));
+            }
+            changed += sliceChanged;
+        }
+        
+        long cells = (long) userIds.size() * agentIds.size();
+        log.info("Bulk access {}: {} users x {} agents, {} grants changed",
+                request.getAction(), userIds.size(), agentIds.size(), changed);
+        return AccessBulkResult.builder()
+                .action(request.getAction())
+                .users(userIds.size())
+                .agents(agentIds.size())
+                .changed(changed)
+                .unchanged(cells - changed)
+                .build();
+    }
+    
+    private AgentAccessChangedEvent apply(Long userId, Set<String> toGrant, Set<String> toRevoke) {
+        Set<String> granted = toGrant.isEmpty() ? Set.of() : agentRepository.insertAccessGrants(userId, toGrant);
+        Set<String> revoked = toRevoke.isEmpty() ? Set.of() : agentRepository.deleteAccessGrants(userId, toRevoke);
+        
+        AgentAccessChangedEvent event = new AgentAccessChangedEvent(userId, granted, revoked);
+        if (!granted.isEmpty() || !revoked.isEmpty()) {
+            eventPublisher.publishEvent(event);
+        }
+        return event;
+    }
+    
+    /**
+     * Merge the users selected by ID with the holders of the selected roles, failing on unknown IDs or roles
+     */
+    private List<Long> selectUsers(AccessBulkRequest request) {
+        Set<Long> requestedIds = request.getUserIds() != null ? new LinkedHashSet<>(request.getUserIds()) : Set.of();
+        Set<String> roleNames = request.getRoles() != null ? new HashSet<>(request.getRoles()) : Set.of();
+        if (requestedIds.isEmpty() && roleNames.isEmpty()) {
+            throw new IllegalArgumentException("Select users with userIds, roles, or both");
+        }
+        
+        Set<Long> userIds = new LinkedHashSet<>();
+        for (List<Long> slice : slices(requestedIds)) {
+            userIds.addAll(userRepository.findExistingIds(slice));
+        }
+        requireAll("User", "id", requestedIds, userIds);
+        
+        if (!roleNames.isEmpty()) {
+            requireAll("Role", "name", roleNames, roleRepository.findExistingNames(roleNames));
+            userIds.addAll(userRepository.findIdsByRoleNames(roleNames));
+        }
+        return new ArrayList<>(userIds);
+    }
+    
+    private <T> List<List<T>> slices(Collection<T> values) {
+        List<T> list = new ArrayList<>(values);
+        List<List<T>> slices = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += usersPerStatement) {
+            slices.add(list.subList(from, Math.min(from + usersPerStatement, list.size())));
+        }
+        return slices;
+    }
+    
+    private static <T> void requireAll(String resource, String field, Collection<T> requested, Collection<T> found) {
+        Set<T> missing = new HashSet<>(requested);
+        missing.removeAll(found);
+        if (!missing.isEmpty()) {
+            throw new ResourceNotFoundException(resource, field, missing.iterator().next());
+        }
+    }
+    
+    private void requireUser(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("User", "id", userId);
+        }
+    }
+    
+    private void requireAgents(Set<String> agentIds) {
+        if (agentIds.isEmpty()) {
+            return;
+        }
+        
+        requireAll("Agent", "id", agentIds, agentRepository.findExistingIds(agentIds));
+    }
+}
@@ -0,0 +1,225 @@
+package com.agentstore.api.service;
+
+import com.agentstore.api.dto.AgentDto;
+import com.agentstore.api.dto.BulkImportError;
+import com.agentstore.api.dto.BulkImportResult;
+import com.agentstore.api.entity.Agent;
+import com.agentstore.api.event.AgentCatalogChangedEvent;
+import com.agentstore.api.repository.AgentRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Imports and exports the agent catalog as NDJSON, one agent per line, without holding the catalog in memory
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AgentBulkService {
+    
+    private static final int MAX_ID_LENGTH = 50;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    
+    private final AgentRepository agentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    
+    @Value("${app.agents.bulk.chunk-size:500}")
+    private int chunkSize;
+    
+    @Value("${app.agents.bulk.fetch-size:500}")
+    private int fetchSize;
+    
+    /**
+     * Create or update agents from NDJSON, committing every chunk of lines in its own transaction
+     * Invalid lines are reported and skipped; they never fail the rest of the import
+     * @param input One JSON agent per line, blank lines are ignored
+     */
+    public BulkImportResult importAgents(Reader input) throws IOException {
+        BulkImportResult result = BulkImportResult.builder().build();
+        List<Agent> chunk = new ArrayList<>(chunkSize);
+        List<Long> chunkLines = new ArrayList<>(chunkSize);
+        
+        try {
+            BufferedReader reader = new BufferedReader(input);
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                
+                result.setProcessed(result.getProcessed() + 1);
+                AgentDto agentDto = null;
+                try {
+                    agentDto = objectMapper.readValue(line, AgentDto.class);
+                    validate(agentDto);
+                } catch (JsonProcessingException e) {
+                    addError(result, lineNumber, null, "Invalid JSON: " + e.getOriginalMessage());
+                    continue;
+                } catch (IllegalArgumentException e) {
+                    addError(result, lineNumber, agentDto != null ? agentDto.getId() : null, e.getMessage());
+                    continue;
+                }
+                
+                chunk.add(toAgent(agentDto));
+                chunkLines.add(lineNumber);
+                if (chunk.size() >= chunkSize) {
+                    writeChunk(chunk, chunkLines, result);
+                }
+            }
+            
+            writeChunk(chunk, chunkLines, result);
+        } finally {
+            if (result.getUpserted() > 0) {
+                // Committed chunks stay, even if reading the rest of the input failed
+                eventPublisher.publishEvent(new AgentCatalogChangedEvent(null));
+            }
+        }
+        
+        log.info("Bulk agent import: {} lines, {} upserted, {} unchanged, {} failed",
+                result.getProcessed(), result.getUpserted(), result.getUnchanged(), result.getFailed());
+        return result;
+    }
+    
+    /**
+     * Write every agent as NDJSON, in creation order, streaming rows from a database cursor
+     * @return The number of exported agents
+     */
+    @Transactional(readOnly = true)
+    public long exportAgents(OutputStream output) throws IOException {
+        AtomicLong exported = new AtomicLong();
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(output);
+        // Every agent ends with a newline instead of the default space between root values
+        generator.setRootValueSeparator(null);
+        
+        agentRepository.forEachAgent(fetchSize, agent -> {
+            try {
+                generator.writeObject(toDto(agent));
+                generator.writeRaw('\n');
+                exported.incrementAndGet();
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to write agent " + agent.getId(), e);
+            }
+        });
+        
+        generator.flush();
+        return exported.get();
+    }
+    
+    /**
+     * Upsert a chunk in one batch, falling back to one agent per transaction to pinpoint the failing lines
+     */
+    private void writeChunk(List<Agent> chunk, List<Long> chunkLines, BulkImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        
+        try {
+            Integer changed = transactionTemplate.execute(status -> agentRepository.upsertAgents(chunk));
+            countWritten(result, chunk.size(), changed);
+        } catch (DataAccessException batchFailure) {
+            log.debug("Bulk agent batch failed, retrying its {} agents one by one", chunk.size(), batchFailure);
+            for (int i = 0; i < chunk.size(); i++) {
+                Agent agent = chunk.get(i);
+                try {
+                    Integer changed = transactionTemplate.execute(status -> agentRepository.upsertAgents(List.of(agent)));
+                    countWritten(result, 1, changed);
+                } catch (DataAccessException e) {
+                    addError(result, chunkLines.get(i), agent.getId(), e.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+        
+        chunk.clear();
+        chunkLines.clear();
+    }
+    
+    private static void countWritten(BulkImportResult result, int written, Integer changed) {
+        long upserted = changed != null ? changed : 0;
+        result.setUpserted(result.getUpserted() + upserted);
+        result.setUnchanged(result.getUnchanged() + written - upserted);
+    }
+    
+    private void validate(AgentDto agentDto) {
+        if (agentDto == null) {
+            throw new IllegalArgumentException("Line must be a JSON object");
+        }
+        if (agentDto.getId() == null || agentDto.getId().isBlank()) {
+            throw new IllegalArgumentException("Agent id cannot be blank");
+        }
+        if (agentDto.getId().length() > MAX_ID_LENGTH) {
+            throw new IllegalArgumentException("Agent id cannot be more than " + MAX_ID_LENGTH + " characters");
+        }
+        if (agentDto.getImageData() != null || agentDto.getImageDataUrl() != null) {
+            throw new IllegalArgumentException("Images are not imported in bulk, upload them with PUT /images/agents/{id}");
+        }
+        
+        Set<ConstraintViolation<AgentDto>> violations = validator.validate(agentDto);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+    }
+    
+    private static void addError(BulkImportResult result, long line, String id, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add(BulkImportError.builder()
+                    .line(line)
+                    .id(id)
+                    .message(message)
+                    .build());
+        } else {
+            result.setErrorsTruncated(true);
+        }
+    }
+    
+    private static Agent toAgent(AgentDto agentDto) {
+        return Agent.builder()
+                .id(agentDto.getId())
+                .title(agentDto.getTitle())
+                .description(agentDto.getDescription())
+                .linkUrl(agentDto.getLinkUrl())
+                .port(agentDto.getPort())
+                .build();
+    }
+    
+    private static AgentDto toDto(Agent agent) {
+        return AgentDto.builder()
+                .id(agent.getId())
+                .title(agent.getTitle())
+                .description(agent.getDescription())
+                .linkUrl(agent.getLinkUrl())
+                .port(agent.getPort())
+                .createdAt(agent.getCreatedAt())
+                .updatedAt(agent.getUpdatedAt())
+                .build();
+    }
+}
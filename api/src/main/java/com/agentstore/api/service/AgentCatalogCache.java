@@ -0,0 +1,122 @@
+package com.agentstore.api.service;
+
+import com.agentstore.api.dto.AgentDto;
+import com.agentstore.api.dto.CatalogCacheStats;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Holds the agent listing as an immutable snapshot in creation order, so catalog reads need no database query.
+ * Readers never lock; a rebuilt snapshot replaces the previous one in a single atomic swap.
+ * The cached DTOs are shared between requests and must not be modified.
+ */
+@Slf4j
+@Component
+public class AgentCatalogCache {
+    
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    
+    // Serializes rebuilds so the last one to run always reflects the last committed change
+    private final Object reloadLock = new Object();
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong reloads = new AtomicLong();
+    
+    @Value("${app.agents.catalog-cache.enabled:true}")
+    private boolean enabled;
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Get the cached catalog, loading it on first use
+     * @param loader Builds the full catalog in creation order
+     */
+    public List<AgentDto> get(Supplier<List<AgentDto>> loader) {
+        return current(loader).getAgents();
+    }
+    
+    /**
+     * Get the cached catalog keyed by agent id, loading it on first use
+     * @param loader Builds the full catalog in creation order
+     */
+    public Map<String, AgentDto> getById(Supplier<List<AgentDto>> loader) {
+        return current(loader).getAgentsById();
+    }
+    
+    /**
+     * Rebuild the catalog and swap it in, replacing the previous snapshot
+     * @param loader Builds the full catalog in creation order
+     */
+    public void reload(Supplier<List<AgentDto>> loader) {
+        rebuild(loader);
+    }
+    
+    private Snapshot current(Supplier<List<AgentDto>> loader) {
+        Snapshot current = snapshot.get();
+        if (current != null) {
+            hits.incrementAndGet();
+            return current;
+        }
+        
+        misses.incrementAndGet();
+        return rebuild(loader);
+    }
+    
+    private Snapshot rebuild(Supplier<List<AgentDto>> loader) {
+        synchronized (reloadLock) {
+            List<AgentDto> agents = List.copyOf(loader.get());
+            Map<String, AgentDto> agentsById = agents.stream()
+                    .collect(Collectors.toUnmodifiableMap(AgentDto::getId, Function.identity()));
+            
+            Snapshot rebuilt = new Snapshot(agents, agentsById, LocalDateTime.now());
+            snapshot.set(rebuilt);
+            reloads.incrementAndGet();
+            log.debug("Agent catalog cache rebuilt with {} agents", agents.size());
+            return rebuilt;
+        }
+    }
+    
+    /**
+     * Get cache hit and miss counters
+     */
+    public CatalogCacheStats getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long total = hitCount + missCount;
+        Snapshot current = snapshot.get();
+        
+        return CatalogCacheStats.builder()
+                .enabled(enabled)
+                .hits(hitCount)
+                .misses(missCount)
+                .reloads(reloads.get())
+                .hitRatio(total == 0 ? 0 : (double) hitCount / total)
+                .entries(current != null ? current.getAgents().size() : 0)
+                .loadedAt(current != null ? current.getLoadedAt() : null)
+                .build();
+    }
+    
+    @Getter
+    @RequiredArgsConstructor
+    private static class Snapshot {
+        
+        private final List<AgentDto> agents;
+        private final Map<String, AgentDto> agentsById;
+        private final LocalDateTime loadedAt;
+    }
+}
@@ -0,0 +1,111 @@
+package com.agentstore.api.service;
+
+import com.agentstore.api.entity.AgentChange;
+import com.agentstore.api.event.AgentAccessBulkChangedEvent;
+import com.agentstore.api.event.AgentAccessChangedEvent;
+import com.agentstore.api.event.AgentCatalogChangedEvent;
+import com.agentstore.api.event.AgentChangesSequencedEvent;
+import com.agentstore.api.event.AgentDeletedEvent;
+import com.agentstore.api.event.AgentImageStoredEvent;
+import com.agentstore.api.event.UserChangedEvent;
+import com.agentstore.api.event.UserDeletedEvent;
+import com.agentstore.api.repository.AgentChangeRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Gives committed agent changes their catalog version, in the order they were logged
+ * Writers log changes without a version and without any lock; versions are drawn here, after the commit, so writers
+ * never wait on each other for the change log. Runs on its own thread: commits nudge it, and a schedule catches
+ * writes that publish no event.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AgentChangeSequencer {
+    
+    @Value("${app.agents.changes.sequence-batch-size:1000}")
+    private int batchSize;
+    
+    private final AgentChangeRepository agentChangeRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    private final AtomicBoolean requested = new AtomicBoolean();
+    
+    private ExecutorService executor;
+    
+    @PostConstruct
+    void startExecutor() {
+        executor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("agent-change-sequencer-"));
+    }
+    
+    @PreDestroy
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+    
+    // Runs after the other listeners, so the caches and indexes already reflect the change when it is streamed
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(classes = {AgentCatalogChangedEvent.class, AgentDeletedEvent.class,
+            AgentImageStoredEvent.class, AgentAccessChangedEvent.class, AgentAccessBulkChangedEvent.class,
+            UserChangedEvent.class, UserDeletedEvent.class}, fallbackExecution = true)
+    public void onChangeCommitted() {
+        requestSequencing();
+    }
+    
+    /**
+     * Sequence the pending changes on the sequencer thread; requests made while a run is queued are merged into it
+     */
+    @Scheduled(fixedDelayString = "${app.agents.changes.sequence-interval:PT1S}")
+    public void requestSequencing() {
+        if (requested.compareAndSet(false, true)) {
+            executor.execute(this::runRequested);
+        }
+    }
+    
+    /**
+     * Give versions to every committed change that has none yet and publish them, a batch at a time
+     * Synchronized, so batches are published in version order even when called outside the sequencer thread.
+     * @return The number of changes that were given a version
+     */
+    public synchronized int sequencePending() {
+        int sequenced = 0;
+        List<AgentChange> changes;
+        do {
+            changes = new ArrayList<>(agentChangeRepository.sequenceChanges(batchSize));
+            changes.sort(Comparator.comparing(AgentChange::getVersion));
+            if (!changes.isEmpty()) {
+                sequenced += changes.size();
+                eventPublisher.publishEvent(new AgentChangesSequencedEvent(changes));
+            }
+        } while (changes.size() == batchSize);
+        return sequenced;
+    }
+    
+    private void runRequested() {
+        // Cleared first, so a commit during this run queues another one instead of being lost
+        requested.set(false);
+        try {
+            sequencePending();
+        } catch (RuntimeException e) {
+            log.warn("Failed to sequence agent changes, retrying on the next run", e);
+        }
+    }
+}
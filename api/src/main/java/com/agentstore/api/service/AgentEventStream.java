@@ -0,0 +1,454 @@
+package com.agentstore.api.service;
+
+import com.agentstore.api.dto.AgentDto;
+import com.agentstore.api.dto.AgentStreamEvent;
+import com.agentstore.api.entity.AgentChange;
+import com.agentstore.api.event.AgentChangesSequencedEvent;
+import com.agentstore.api.event.AgentHealthChangedEvent;
+import com.agentstore.api.event.UserChangedEvent;
+import com.agentstore.api.event.UserDeletedEvent;
+import com.agentstore.api.repository.AgentChangeRepository;
+import com.agentstore.api.security.UserDetailsImpl;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Pushes committed agent and access changes to GET /agents/stream subscribers as server-sent events
+ * Changes are streamed from the change log once they have their version, in version order, so the id of every
+ * event is the version of that very change.
+ * Idle connections hold no thread: events are queued in a bounded buffer per connection and written by a small
+ * shared pool, without blocking on slow clients. A connection whose buffer overflows is closed; the client
+ * reconnects and catches up with GET /agents/changes from the version of the last event it received.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AgentEventStream {
+    
+    private static final String AGENT_CREATED = "agent-created";
+    private static final String AGENT_UPDATED = "agent-updated";
+    private static final String AGENT_DELETED = "agent-deleted";
+    private static final String ACCESS_GRANTED = "access-granted";
+    private static final String ACCESS_REVOKED = "access-revoked";
+    private static final String CATALOG_CHANGED = "catalog-changed";
+    
+    private static final MediaType EVENT_TEXT = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+    private static final byte[] HEARTBEAT = ":heartbeat\n\n".getBytes(StandardCharsets.UTF_8);
+    
+    @Value("${app.agents.stream.timeout:PT30M}")
+    private Duration timeout;
+    
+    @Value("${app.agents.stream.buffer-size:64}")
+    private int bufferSize;
+    
+    @Value("${app.agents.stream.send-threads:4}")
+    private int sendThreads;
+    
+    @Value("${app.agents.stream.max-events:100}")
+    private int maxEvents;
+    
+    private final AgentService agentService;
+    private final AgentAccessIndex agentAccessIndex;
+    private final AgentChangeRepository agentChangeRepository;
+    private final ObjectMapper objectMapper;
+    
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    
+    // Version of the last change streamed, for events that are not in the change log
+    private final AtomicLong lastVersion = new AtomicLong();
+    
+    private ThreadPoolExecutor executor;
+    
+    @PostConstruct
+    void startExecutor() {
+        lastVersion.set(agentChangeRepository.findLatestVersion());
+        
+        // Each connection has at most one drain task queued, so the queue is bounded by the number of connections
+        executor = new ThreadPoolExecutor(sendThreads, sendThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("agent-stream-"));
+        executor.allowCoreThreadTimeOut(true);
+    }
+    
+    @PreDestroy
+    void stopExecutor() {
+        subscribers.forEach(Subscriber::close);
+        executor.shutdownNow();
+    }
+    
+    /**
+     * Open a stream of the changes to the agents the current user may see
+     */
+    public SseEmitter subscribe() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+        
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(userDetails.getId(), agentService.hasAdminOrVipRole(authentication),
+                emitter, currentResponse());
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        subscribers.add(subscriber);
+        
+        log.debug("User {} subscribed to agent events, {} subscribers", userDetails.getId(), subscribers.size());
+        return emitter;
+    }
+    
+    private static HttpServletResponse currentResponse() {
+        return RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                ? attributes.getResponse()
+                : null;
+    }
+    
+    /**
+     * Get the number of open streams
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+    
+    /**
+     * Keep idle connections open through proxies and notice clients that went away
+     */
+    @Scheduled(fixedDelayString = "${app.agents.stream.heartbeat-interval:PT30S}")
+    public void sendHeartbeats() {
+        subscribers.forEach(subscriber -> subscriber.offer(HEARTBEAT));
+    }
+    
+    /**
+     * Stream changes once they have their version, each event carrying the version of its own change
+     * Only changes someone is subscribed to become events. A batch that would send more events than the stream
+     * should send one by one, such as a large bulk revoke, is sent as a single catalog-changed instead.
+     */
+    @EventListener
+    public void onChangesSequenced(AgentChangesSequencedEvent event) {
+        List<AgentChange> changes = event.getChanges();
+        lastVersion.accumulateAndGet(changes.get(changes.size() - 1).getVersion(), Math::max);
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        
+        // Admin and VIP users see every agent whatever their grants, so only other users get access events
+        Set<Long> granteeIds = new HashSet<>();
+        boolean anySeesAllAgents = false;
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.seesAllAgents) {
+                anySeesAllAgents = true;
+            } else {
+                granteeIds.add(subscriber.userId);
+            }
+        }
+        
+        Map<String, AgentChange> lastAgentChanges = new HashMap<>();
+        Set<String> createdIds = new HashSet<>();
+        Set<String> grantedIds = new HashSet<>();
+        int otherEvents = 0;
+        for (AgentChange change : changes) {
+            switch (change.getChangeType()) {
+                case AgentChange.CREATE -> {
+                    createdIds.add(change.getAgentId());
+                    lastAgentChanges.put(change.getAgentId(), change);
+                }
+                case AgentChange.UPSERT, AgentChange.IMAGE -> lastAgentChanges.put(change.getAgentId(), change);
+                case AgentChange.DELETE -> otherEvents += anySeesAllAgents ? 1 : 0;
+                case AgentChange.GRANT, AgentChange.REVOKE -> {
+                    if (granteeIds.contains(change.getUserId())) {
+                        otherEvents++;
+                        if (AgentChange.GRANT.equals(change.getChangeType())) {
+                            grantedIds.add(change.getAgentId());
+                        }
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        if (lastAgentChanges.size() + otherEvents > maxEvents) {
+            broadcast(CATALOG_CHANGED, lastVersion.get(), AgentStreamEvent.builder(), subscriber -> true);
+            return;
+        }
+        
+        Set<String> listedIds = new HashSet<>(lastAgentChanges.keySet());
+        listedIds.addAll(grantedIds);
+        Map<String, AgentDto> agents = agentService.findListedAgents(listedIds);
+        
+        for (AgentChange change : changes) {
+            String agentId = change.getAgentId();
+            boolean toGrantee = granteeIds.contains(change.getUserId());
+            Predicate<Subscriber> grantee = subscriber -> !subscriber.seesAllAgents
+                    && subscriber.userId.equals(change.getUserId());
+            switch (change.getChangeType()) {
+                // An agent changed several times in the batch is sent once, at its last change
+                case AgentChange.CREATE, AgentChange.UPSERT, AgentChange.IMAGE -> {
+                    if (lastAgentChanges.get(agentId) == change && agents.containsKey(agentId)) {
+                        publishAgent(createdIds.contains(agentId) ? AGENT_CREATED : AGENT_UPDATED, change.getVersion(),
+                                agents.get(agentId));
+                    }
+                }
+                // Grantees learn of the deletion from the revocation of their grant, logged with it
+                case AgentChange.DELETE -> {
+                    if (anySeesAllAgents) {
+                        broadcast(AGENT_DELETED, change.getVersion(), AgentStreamEvent.builder().agentId(agentId),
+                                subscriber -> subscriber.seesAllAgents);
+                    }
+                }
+                case AgentChange.GRANT -> {
+                    if (toGrantee && agents.containsKey(agentId)) {
+                        broadcast(ACCESS_GRANTED, change.getVersion(),
+                                AgentStreamEvent.builder().agentId(agentId).agent(agents.get(agentId)), grantee);
+                    }
+                }
+                case AgentChange.REVOKE -> {
+                    if (toGrantee) {
+                        broadcast(ACCESS_REVOKED, change.getVersion(), AgentStreamEvent.builder().agentId(agentId),
+                                grantee);
+                    }
+                }
+                // Streams of users whose roles changed are closed when the change commits
+                default -> {
+                }
+            }
+        }
+    }
+    
+    /**
+     * Stream health changes; they are not logged, so they carry the version of the last change streamed
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onHealthChanged(AgentHealthChangedEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        
+        if (event.getAgentId() == null) {
+            broadcast(CATALOG_CHANGED, lastVersion.get(), AgentStreamEvent.builder(), subscriber -> true);
+            return;
+        }
+        
+        agentService.findListedAgents(List.of(event.getAgentId())).values()
+                .forEach(agent -> publishAgent(AGENT_UPDATED, lastVersion.get(), agent));
+    }
+    
+    /**
+     * Close the streams of a user whose roles may have changed; they reconnect with their current visibility
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        closeStreamsOf(event.getUserId());
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserDeleted(UserDeletedEvent event) {
+        closeStreamsOf(event.getUserId());
+    }
+    
+    private void publishAgent(String name, long version, AgentDto agent) {
+        String agentId = agent.getId();
+        broadcast(name, version, AgentStreamEvent.builder().agentId(agentId).agent(agent),
+                subscriber -> subscriber.seesAllAgents || agentAccessIndex.hasAccess(subscriber.userId, agentId));
+    }
+    
+    /**
+     * Serialize an event once and queue it for every subscriber allowed to see it; nothing is serialized when no
+     * subscriber may see it
+     */
+    private void broadcast(String name, long version, AgentStreamEvent.AgentStreamEventBuilder data,
+                           Predicate<Subscriber> recipients) {
+        List<Subscriber> receivers = subscribers.stream()
+                .filter(recipients)
+                .toList();
+        if (receivers.isEmpty()) {
+            return;
+        }
+        
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(data.version(version).build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize agent event " + name, e);
+        }
+        // Encoded once for every receiver, and written in one piece
+        byte[] event = ("id:" + version + "\nevent:" + name + "\ndata:" + json + "\n\n")
+                .getBytes(StandardCharsets.UTF_8);
+        receivers.forEach(subscriber -> subscriber.offer(event));
+    }
+    
+    private void closeStreamsOf(Long userId) {
+        subscribers.stream()
+                .filter(subscriber -> subscriber.userId.equals(userId))
+                .forEach(Subscriber::close);
+    }
+    
+    /**
+     * One open stream and the events waiting to be written to it
+     * Writes use the container's non-blocking IO: when the client can not take more data, draining stops until the
+     * container calls onWritePossible, so a slow client fills its own buffer and is dropped without ever holding a
+     * send thread. Containers without non-blocking IO, such as MockMvc, get blocking sends through the emitter.
+     */
+    private final class Subscriber implements WriteListener {
+        
+        private final Long userId;
+        private final boolean seesAllAgents;
+        private final SseEmitter emitter;
+        private final Queue<byte[]> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+        
+        // Null once known not to support non-blocking writes
+        private HttpServletResponse response;
+        
+        // Set once the write listener is registered; only touched by the drain in progress
+        private ServletOutputStream output;
+        
+        // Whether draining waits for onWritePossible
+        private volatile boolean writeBlocked;
+        
+        private Subscriber(Long userId, boolean seesAllAgents, SseEmitter emitter, HttpServletResponse response) {
+            this.userId = userId;
+            this.seesAllAgents = seesAllAgents;
+            this.emitter = emitter;
+            this.response = response;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+        
+        private void offer(byte[] event) {
+            if (closed) {
+                return;
+            }
+            
+            if (!buffer.offer(event)) {
+                log.debug("Agent event buffer of user {} is full, closing the slow stream", userId);
+                close();
+                return;
+            }
+            scheduleDrain();
+        }
+        
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+        
+        private void drain() {
+            try {
+                while (!closed && !mustWaitToWrite()) {
+                    byte[] event = buffer.poll();
+                    if (event == null) {
+                        // Only reached while the client can take more data, as a non-blocking flush requires
+                        if (output != null) {
+                            output.flush();
+                        }
+                        break;
+                    }
+                    
+                    // Written straight to the stream: the emitter flushes after every send, which a non-blocking
+                    // stream rejects while earlier data is still pending
+                    if (output != null) {
+                        output.write(event);
+                    } else {
+                        emitter.send(Set.of(new DataWithMediaType(event, EVENT_TEXT)));
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Agent event stream of user {} is gone: {}", userId, e.getMessage());
+                close();
+            } finally {
+                draining.set(false);
+            }
+            
+            // An event queued after the last poll but before the flag was cleared would otherwise wait for the next one
+            if (!closed && !writeBlocked && !buffer.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+        
+        /**
+         * Check whether the client can take more data right now, registering for onWritePossible when it can not
+         */
+        private boolean mustWaitToWrite() throws IOException {
+            if (output == null && response != null) {
+                try {
+                    ServletOutputStream stream = response.getOutputStream();
+                    stream.setWriteListener(this);
+                    output = stream;
+                } catch (UnsupportedOperationException e) {
+                    response = null;
+                } catch (IllegalStateException e) {
+                    // The response is not asynchronous yet; Spring keeps what is sent until then
+                }
+            }
+            if (output == null) {
+                return false;
+            }
+            
+            // Raised before asking, since a false answer may call onWritePossible right away
+            writeBlocked = true;
+            if (!output.isReady()) {
+                return true;
+            }
+            writeBlocked = false;
+            return false;
+        }
+        
+        @Override
+        public void onWritePossible() {
+            writeBlocked = false;
+            // Even with nothing queued, the last write may still need its flush
+            if (!closed) {
+                scheduleDrain();
+            }
+        }
+        
+        @Override
+        public void onError(Throwable error) {
+            log.debug("Agent event stream of user {} failed: {}", userId, error.getMessage());
+            close();
+        }
+        
+        private void close() {
+            closed = true;
+            subscribers.remove(this);
+            buffer.clear();
+            emitter.complete();
+        }
+    }
+}
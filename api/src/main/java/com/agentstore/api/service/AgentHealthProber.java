@@ -0,0 +1,313 @@
+package com.agentstore.api.service;
+
+import com.agentstore.api.dto.AgentHealth;
+import com.agentstore.api.dto.AgentHealthStatus;
+import com.agentstore.api.event.AgentDeletedEvent;
+import com.agentstore.api.event.AgentHealthChangedEvent;
+import com.agentstore.api.repository.AgentRepository;
+import com.agentstore.api.repository.projection.AgentProbeTarget;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Probes the service behind every agent on a schedule and keeps the latest result in memory
+ * Agents with an HTTP(S) link get a HEAD request; a 2xx or 3xx answer means the service is up. Agents with
+ * only a port get a TCP connect to the configured host. Every probe is non-blocking and bounded by the timeout,
+ * so a whole round takes about one timeout however many agents there are.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AgentHealthProber {
+    
+    // Beyond this many status changes in one round, the catalog is refreshed once instead of per agent
+    private static final int MAX_CHANGE_EVENTS = 10;
+    
+    @Value("${app.agents.health.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${app.agents.health.timeout:PT5S}")
+    private Duration timeout;
+    
+    // Blank when unset, so agents that only have a port are not probed against whatever host the API runs on
+    @Value("${app.agents.health.tcp-host:}")
+    private String tcpHost;
+    
+    @Value("${app.agents.health.pool-size:2}")
+    private int poolSize;
+    
+    private final AgentRepository agentRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    private final Map<String, AgentHealth> healthByAgent = new ConcurrentHashMap<>();
+    private final AtomicBoolean probing = new AtomicBoolean();
+    
+    private ExecutorService executor;
+    private HttpClient httpClient;
+    private AsynchronousChannelGroup channelGroup;
+    
+    @PostConstruct
+    void startClients() throws IOException {
+        // Both clients only run completion callbacks on these threads, the waiting is done by selectors
+        executor = Executors.newFixedThreadPool(poolSize, new CustomizableThreadFactory("agent-health-"));
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .executor(executor)
+                .build();
+        channelGroup = AsynchronousChannelGroup.withThreadPool(
+                Executors.newFixedThreadPool(poolSize, new CustomizableThreadFactory("agent-health-tcp-")));
+        if (enabled && !StringUtils.hasText(tcpHost)) {
+            log.info("No agent TCP host configured, agents with only a port are reported as unknown");
+        }
+    }
+    
+    @PreDestroy
+    void stopClients() {
+        channelGroup.shutdown();
+        executor.shutdownNow();
+    }
+    
+    /**
+     * Get the latest probe result of an agent
+     */
+    public Optional<AgentHealth> getHealth(String agentId) {
+        return Optional.ofNullable(healthByAgent.get(agentId));
+    }
+    
+    @Scheduled(initialDelayString = "${app.agents.health.initial-delay:PT10S}",
+            fixedDelayString = "${app.agents.health.interval:PT1M}")
+    public void probeOnSchedule() {
+        probeAll();
+    }
+    
+    /**
+     * Start a probe of every agent, unless the previous round is still running
+     * @return A future completed once every agent was probed
+     */
+    public CompletableFuture<Void> probeAll() {
+        if (!enabled || !probing.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        List<AgentProbeTarget> targets;
+        try {
+            targets = agentRepository.findAllProbeTargets();
+        } catch (RuntimeException e) {
+            probing.set(false);
+            throw e;
+        }
+        
+        List<CompletableFuture<AgentHealth>> probes = new ArrayList<>(targets.size());
+        for (AgentProbeTarget target : targets) {
+            probes.add(probe(target.getId(), target.getLinkUrl(), target.getPort()));
+        }
+        
+        // Returns right away; the scheduler thread never waits on the network
+        return CompletableFuture.allOf(probes.toArray(CompletableFuture[]::new))
+                .thenRun(() -> applyResults(targets, probes))
+                .whenComplete((ignored, error) -> {
+                    probing.set(false);
+                    if (error != null) {
+                        log.warn("Agent health probe round failed", error);
+                    }
+                });
+    }
+    
+    /**
+     * Probe one agent service, without recording the result
+     * @param linkUrl Probed with HTTP when it is an http or https URL
+     * @param port Probed with a TCP connect to the configured host otherwise; unknown when no host is configured
+     * @return A future that always completes, within about one timeout
+     */
+    public CompletableFuture<AgentHealth> probe(String agentId, String linkUrl, String port) {
+        if (isHttpUrl(linkUrl)) {
+            return probeHttp(agentId, linkUrl);
+        }
+        
+        Integer portNumber = parsePort(port);
+        if (portNumber != null && StringUtils.hasText(tcpHost)) {
+            return probeTcp(agentId, tcpHost, portNumber);
+        }
+        
+        return CompletableFuture.completedFuture(AgentHealth.builder()
+                .agentId(agentId)
+                .status(AgentHealthStatus.UNKNOWN)
+                .checkedAt(LocalDateTime.now())
+                .build());
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAgentDeleted(AgentDeletedEvent event) {
+        healthByAgent.remove(event.getAgentId());
+    }
+    
+    private CompletableFuture<AgentHealth> probeHttp(String agentId, String url) {
+        long start = System.nanoTime();
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(url))
+                    .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                    .timeout(timeout)
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(down(agentId, url, "Invalid URL: " + e.getMessage()));
+        }
+        
+        // Redirects are not followed, so a 3xx counts as up; a 4xx such as 404 means the service is not there
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .thenApply(response -> response.statusCode() >= 200 && response.statusCode() < 400
+                        ? up(agentId, url, start)
+                        : down(agentId, url, "HTTP " + response.statusCode()))
+                .exceptionally(error -> down(agentId, url, describe(error)));
+    }
+    
+    private CompletableFuture<AgentHealth> probeTcp(String agentId, String host, int port) {
+        String target = host + ":" + port;
+        long start = System.nanoTime();
+        CompletableFuture<AgentHealth> result = new CompletableFuture<>();
+        
+        AsynchronousSocketChannel channel;
+        try {
+            channel = AsynchronousSocketChannel.open(channelGroup);
+            channel.connect(new InetSocketAddress(host, port), null, new CompletionHandler<Void, Void>() {
+                @Override
+                public void completed(Void ignored, Void attachment) {
+                    result.complete(up(agentId, target, start));
+                }
+                
+                @Override
+                public void failed(Throwable error, Void attachment) {
+                    result.complete(down(agentId, target, describe(error)));
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.completedFuture(down(agentId, target, describe(e)));
+        }
+        
+        // Closing the channel also aborts a connect that is still pending when the timeout fires
+        return result.completeOnTimeout(down(agentId, target, "Timed out after " + timeout.toMillis() + " ms"),
+                        timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((health, error) -> closeQuietly(channel));
+    }
+    
+    /**
+     * Record a finished round and refresh listings of agents whose status changed
+     */
+    private void applyResults(List<AgentProbeTarget> targets, List<CompletableFuture<AgentHealth>> probes) {
+        List<String> changed = new ArrayList<>();
+        for (CompletableFuture<AgentHealth> probe : probes) {
+            AgentHealth health = probe.join();
+            AgentHealth previous = healthByAgent.put(health.getAgentId(), health);
+            if (previous == null || previous.getStatus() != health.getStatus()) {
+                changed.add(health.getAgentId());
+            }
+        }
+        
+        Set<String> probedIds = targets.stream()
+                .map(AgentProbeTarget::getId)
+                .collect(Collectors.toSet());
+        healthByAgent.keySet().retainAll(probedIds);
+        
+        long up = probes.stream().filter(probe -> probe.join().getStatus() == AgentHealthStatus.UP).count();
+        log.debug("Probed {} agents: {} up, {} status changes", probes.size(), up, changed.size());
+        
+        if (changed.size() > MAX_CHANGE_EVENTS) {
+            eventPublisher.publishEvent(new AgentHealthChangedEvent(null));
+        } else {
+            changed.forEach(agentId -> eventPublisher.publishEvent(new AgentHealthChangedEvent(agentId)));
+        }
+    }
+    
+    private static AgentHealth up(String agentId, String target, long start) {
+        return AgentHealth.builder()
+                .agentId(agentId)
+                .status(AgentHealthStatus.UP)
+                .target(target)
+                .latencyMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                .checkedAt(LocalDateTime.now())
+                .build();
+    }
+    
+    private static AgentHealth down(String agentId, String target, String error) {
+        return AgentHealth.builder()
+                .agentId(agentId)
+                .status(AgentHealthStatus.DOWN)
+                .target(target)
+                .error(error)
+                .checkedAt(LocalDateTime.now())
+                .build();
+    }
+    
+    private static String describe(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof TimeoutException || cause instanceof HttpTimeoutException) {
+            return "Timed out";
+        }
+        if (cause.getMessage() == null) {
+            return cause.getClass().getSimpleName();
+        }
+        return cause.getClass().getSimpleName() + ": " + cause.getMessage();
+    }
+    
+    private static boolean isHttpUrl(String linkUrl) {
+        return StringUtils.hasText(linkUrl)
+                && (linkUrl.regionMatches(true, 0, "http://", 0, 7) || linkUrl.regionMatches(true, 0, "https://", 0, 8));
+    }
+    
+    private static Integer parsePort(String port) {
+        if (!StringUtils.hasText(port)) {
+            return null;
+        }
+        try {
+            int number = Integer.parseInt(port.trim());
+            return number > 0 && number <= 65535 ? number : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    private static void closeQuietly(AsynchronousSocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("Failed to close probe channel", e);
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.agentstore.api.service;
+
+import com.agentstore.api.dto.AgentDto;
+import com.agentstore.api.dto.ImageCacheStats;
+import com.agentstore.api.entity.AgentImage;
+import com.agentstore.api.entity.AgentImageVariant;
+import com.agentstore.api.event.AgentCatalogChangedEvent;
+import com.agentstore.api.event.AgentImageStoredEvent;
+import com.agentstore.api.event.ImageBlobReleasedEvent;
+import com.agentstore.api.exception.ResourceNotFoundException;
+import com.agentstore.api.repository.AgentImageRepository;
+import com.agentstore.api.repository.AgentImageVariantRepository;
+import com.agentstore.api.repository.AgentRepository;
+import com.agentstore.api.repository.ImageBlobRepository;
+import com.agentstore.api.repository.projection.AgentImageMetadata;
+import com.agentstore.api.storage.ImageCache;
+import com.agentstore.api.storage.ImageStore;
+import com.agentstore.api.util.ImageUtil;
+import com.agentstore.api.util.SpooledImage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AgentImageService {
+    
+    private static final int COPY_BUFFER_SIZE = 8192;
+    
+    private final AgentRepository agentRepository;
+    private final AgentImageRepository agentImageRepository;
+    private final AgentImageVariantRepository agentImageVariantRepository;
+    private final ImageBlobRepository imageBlobRepository;
+    private final ImageStore imageStore;
+    private final ImageCache imageCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    
+    /**
+     * Get image metadata without loading the image bytes
+     */
+    public Optional<AgentImageMetadata> findMetadata(String agentId) {
+        return agentImageRepository.findMetadataByAgentId(agentId);
+    }
+    
+    /**
+     * Get the stored image of an agent, without its bytes
+     */
+    public Optional<AgentImage> findImage(String agentId) {
+        return agentImageRepository.findById(agentId);
+    }
+    
+    /**
+     * Read the raw bytes of a stored image from the active image store
+     */
+    public Optional<byte[]> readImageBytes(AgentImage image) {
+        return imageStore.readAllBytes(image.getAgentId(), image.getContentHash());
+    }
+    
+    /**
+     * Get a downscaled variant, including its bytes
+     */
+    public Optional<AgentImageVariant> findVariant(String agentId, int sizePx) {
+        return agentImageVariantRepository.findByAgentIdAndSizePx(agentId, sizePx);
+    }
+    
+    /**
+     * Get the stored images of several agents keyed by agent ID, without their bytes
+     */
+    public Map<String, AgentImage> findImages(Collection<String> agentIds) {
+        return agentImageRepository.findAllById(agentIds).stream()
+                .collect(Collectors.toMap(AgentImage::getAgentId, Function.identity()));
+    }
+    
+    /**
+     * Write a byte range of an agent image to the given stream, from the off-heap cache when possible
+     * Images too large for the cache are streamed straight from the image store
+     * @return The number of bytes written, or -1 if the store does not hold the image
+     */
+    public long streamImage(AgentImageMetadata image, long start, long length, OutputStream out) throws IOException {
+        Optional<ByteBuffer> cached = imageCache.get(image.getAgentId(), image.getContentHash(), image.getSizeBytes(),
+                buffer -> imageStore.copyTo(image.getAgentId(), image.getContentHash(), buffer));
+        if (cached.isPresent()) {
+            ImageCache.write(cached.get(), start, length, out);
+            return length;
+        }
+        
+        if (start == 0 && length == image.getSizeBytes()) {
+            return imageStore.copyTo(image.getAgentId(), image.getContentHash(), out);
+        }
+        return imageStore.copyRange(image.getAgentId(), image.getContentHash(), start, length, out);
+    }
+    
+    /**
+     * Write the gzip compressed copy of an agent image straight from the image store to the given stream
+     * @return The number of bytes written, or -1 if the store holds no compressed copy
+     */
+    public long streamGzipImage(AgentImageMetadata image, OutputStream out) {
+        return imageStore.copyGzipTo(image.getAgentId(), image.getContentHash(), out);
+    }
+    
+    /**
+     * Locate the gzip compressed copy of an agent image as a local file, when the image store keeps images as files
+     */
+    public Optional<Path> findGzipImageFile(AgentImageMetadata image) {
+        return imageStore.findGzipFile(image.getAgentId(), image.getContentHash());
+    }
+    
+    /**
+     * Locate an agent image as a local file, when the image store keeps images as files
+     */
+    public Optional<Path> findImageFile(AgentImageMetadata image) {
+        return imageStore.findFile(image.getAgentId(), image.getContentHash());
+    }
+    
+    /**
+     * Store the image carried by the legacy imageDataUrl/imageData DTO fields, if any
+     * @return true if the DTO carried an image that was stored
+     */
+    @Transactional
+    public boolean saveImageFromDto(String agentId, AgentDto agentDto) {
+        String mimeType;
+        String base64Data;
+        
+        if (StringUtils.hasText(agentDto.getImageDataUrl())) {
+            String[] imageDataParts = ImageUtil.parseDataUrl(agentDto.getImageDataUrl());
+            if (imageDataParts == null) {
+                throw new IllegalArgumentException("Invalid image data URL format or unsupported image type");
+            }
+            mimeType = imageDataParts[0];
+            base64Data = imageDataParts[1];
+        } else if (StringUtils.hasText(agentDto.getImageData()) && StringUtils.hasText(agentDto.getMimeType())) {
+            if (!ImageUtil.isValidImage(agentDto.getImageData(), agentDto.getMimeType())) {
+                throw new IllegalArgumentException("Invalid image data or unsupported image type");
+            }
+            mimeType = agentDto.getMimeType();
+            base64Data = agentDto.getImageData();
+        } else {
+            return false;
+        }
+        
+        saveImage(agentId, mimeType, Base64.getDecoder().decode(base64Data));
+        return true;
+    }
+    
+    /**
+     * Create or replace the image of an agent from bytes already in memory
+     */
+    @Transactional
+    public void saveImage(String agentId, String mimeType, byte[] data) {
+        storeImage(agentId, mimeType, ImageUtil.sha256Hex(data), new ByteArrayResource(data), data.length);
+    }
+    
+    /**
+     * Create or replace the image of an agent from an upload stream, holding at most one buffer in memory
+     * The upload is spooled before a transaction is opened, so slow clients never hold a database connection
+     * @param declaredMimeType The Content-Type sent by the client, sniffed from the bytes when generic
+     * @return The versioned image URL
+     */
+    public String uploadImage(String agentId, String declaredMimeType, InputStream in) throws IOException {
+        try (SpooledImage upload = SpooledImage.spool(in, ImageUtil.MAX_RAW_IMAGE_SIZE_BYTES)) {
+            String mimeType = ImageUtil.resolveUploadedMimeType(declaredMimeType, upload.getHeader());
+            
+            transactionTemplate.executeWithoutResult(status -> {
+                // The agent row is locked before the image, as updateAgent and deleteAgent do, so concurrent writes
+                // to one image take turns instead of reading the same previous blob
+                if (agentRepository.lockById(agentId).isEmpty()) {
+                    throw new ResourceNotFoundException("Agent", "id", agentId);
+                }
+                storeImage(agentId, mimeType, upload.getContentHash(), upload::openStream, upload.getSize());
+            });
+            
+            return buildImageUrl(agentId, upload.getContentHash());
+        }
+    }
+    
+    /**
+     * Delete the image of an agent, releasing its blob
+     */
+    @Transactional
+    public void deleteImage(String agentId) {
+        imageCache.invalidate(agentId);
+        agentImageRepository.deleteImage(agentId).ifPresent(this::releaseBlob);
+    }
+    
+    /**
+     * Get hit, miss and eviction counters of the image cache
+     */
+    public ImageCacheStats getCacheStats() {
+        return imageCache.getStats();
+    }
+    
+    /**
+     * @param source The image bytes; opened a second time to compress formats that benefit from it
+     */
+    private void storeImage(String agentId, String mimeType, String contentHash, InputStreamSource source, long size) {
+        Optional<AgentImageMetadata> previous = agentImageRepository.findMetadataByAgentId(agentId);
+        Optional<String> previousHash = previous.map(AgentImageMetadata::getContentHash);
+        if (previousHash.filter(contentHash::equals).isPresent()) {
+            // Same bytes, so the blob and variants stay; only a corrected MIME type is recorded
+            if (!mimeType.equals(previous.get().getMimeType())) {
+                agentImageRepository.updateMimeType(agentId, mimeType);
+                imageCache.invalidate(agentId);
+                eventPublisher.publishEvent(new AgentCatalogChangedEvent(agentId));
+                log.debug("Image of agent {} is unchanged, MIME type corrected to {}", agentId, mimeType);
+            } else {
+                log.debug("Image of agent {} is unchanged", agentId);
+            }
+            return;
+        }
+        
+        imageBlobRepository.lock(contentHash);
+        boolean created = imageBlobRepository.acquire(contentHash, size);
+        
+        // Variants of the previous image must not be served for the new one
+        agentImageVariantRepository.deleteByAgentId(agentId);
+        imageCache.invalidate(agentId);
+        agentImageRepository.upsertImageMetadata(agentId, mimeType, contentHash, size);
+        
+        // A blob shared with another agent already has its bytes, unless they were never copied to this store
+        if (created || !imageStore.exists(agentId, contentHash)) {
+            try {
+                try (InputStream data = source.getInputStream()) {
+                    imageStore.write(agentId, contentHash, data, size);
+                }
+                if (ImageUtil.isCompressible(mimeType)) {
+                    storeGzipCopy(agentId, contentHash, source, size);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            log.debug("Stored image for agent {} in {} store ({})", agentId, imageStore.getName(), ImageUtil.formatFileSize(size));
+        } else {
+            log.debug("Image of agent {} shares existing blob {}", agentId, contentHash);
+        }
+        
+        previousHash.ifPresent(this::releaseBlob);
+        eventPublisher.publishEvent(new AgentImageStoredEvent(agentId, contentHash));
+    }
+    
+    /**
+     * Keep a gzip compressed copy next to the original, so compressible formats are never compressed per request
+     * The copy is dropped when it would not save at least a tenth of the bytes
+     */
+    private void storeGzipCopy(String agentId, String contentHash, InputStreamSource source, long size) throws IOException {
+        Path compressed = Files.createTempFile("image-gzip-", ".gz");
+        try {
+            try (InputStream in = source.getInputStream();
+                 OutputStream out = newBestCompressionGzip(Files.newOutputStream(compressed))) {
+                in.transferTo(out);
+            }
+            
+            long compressedSize = Files.size(compressed);
+            if (compressedSize > size * 9 / 10) {
+                log.debug("Image of agent {} does not compress well, keeping no gzip copy", agentId);
+                return;
+            }
+            
+            try (InputStream in = Files.newInputStream(compressed)) {
+                imageStore.writeGzip(agentId, contentHash, in, compressedSize);
+            }
+            imageBlobRepository.updateGzipSize(contentHash, compressedSize);
+            log.debug("Stored gzip copy of image for agent {} ({} -> {})", agentId,
+                    ImageUtil.formatFileSize(size), ImageUtil.formatFileSize(compressedSize));
+        } finally {
+            Files.deleteIfExists(compressed);
+        }
+    }
+    
+    private static OutputStream newBestCompressionGzip(OutputStream out) throws IOException {
+        return new GZIPOutputStream(out, COPY_BUFFER_SIZE) {
+            {
+                // Compressed once and served many times, so spend the CPU on the smallest output
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        };
+    }
+    
+    private void releaseBlob(String contentHash) {
+        if (imageBlobRepository.release(contentHash)) {
+            eventPublisher.publishEvent(new ImageBlobReleasedEvent(contentHash));
+        }
+    }
+    
+    /**
+     * Delete the bytes of an unreferenced blob once the transaction that released it has committed
+     * The hash is locked and checked again, since a concurrent upload may have recreated the blob meanwhile
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onBlobReleased(ImageBlobReleasedEvent event) {
+        imageBlobRepository.lock(event.getContentHash());
+        if (!imageBlobRepository.exists(event.getContentHash())) {
+            imageStore.delete(event.getContentHash());
+        }
+    }
+    
+    /**
+     * Build the versioned URL of an agent image, relative to the API base path
+     * @return The image URL, or null if the agent has no image
+     */
+    public String buildImageUrl(String agentId, String contentHash) {
+        if (!StringUtils.hasText(contentHash)) {
+            return null;
+        }
+        
+        return "/images/agents/" + UriUtils.encodePathSegment(agentId, StandardCharsets.UTF_8) + "?v=" + contentHash;
+    }
+    
+    /**
+     * Fill the legacy base64 DTO fields from a stored binary image
+     */
+    public void applyLegacyImageFields(AgentDto dto, AgentImage image) {
+        if (image == null) {
+            return;
+        }
+        
+        dto.setMimeType(image.getMimeType());
+        applyLegacyImageData(dto, image.getContentHash());
+        dto.setImageUrl(buildImageUrl(image.getAgentId(), image.getContentHash()));
+        dto.setImageStatus(image.getVariantStatus().name());
+        dto.setImagePlaceholder(image.getPlaceholder());
+    }
+    
+    /**
+     * Fill the base64 DTO fields of an agent whose image metadata is already set, reading only the image bytes
+     * @param contentHash The content hash of the agent image, null when the agent has no image
+     */
+    public void applyLegacyImageData(AgentDto dto, String contentHash) {
+        if (!StringUtils.hasText(contentHash)) {
+            return;
+        }
+        
+        imageStore.readAllBytes(dto.getId(), contentHash).ifPresent(data -> {
+            String base64Data = Base64.getEncoder().encodeToString(data);
+            dto.setImageData(base64Data);
+            dto.setImageDataUrl(ImageUtil.toDataUrl(dto.getMimeType(), base64Data));
+        });
+    }
+}
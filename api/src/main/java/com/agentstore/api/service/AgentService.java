@@ -1,29 +1,57 @@
 package com.agentstore.api.service;
 
+import com.agentstore.api.dto.AgentChanges;
 import com.agentstore.api.dto.AgentDto;
+import com.agentstore.api.dto.AgentHealth;
+import com.agentstore.api.dto.AgentHealthStatus;
 import com.agentstore.api.dto.ApiResponse;
+import com.agentstore.api.dto.CatalogCacheStats;
+import com.agentstore.api.dto.CursorPage;
 import com.agentstore.api.entity.Agent;
-import com.agentstore.api.entity.User;
+import com.agentstore.api.entity.AgentChange;
+import com.agentstore.api.entity.AgentImage;
+import com.agentstore.api.event.AgentCatalogChangedEvent;
+import com.agentstore.api.event.AgentDeletedEvent;
+import com.agentstore.api.event.AgentHealthChangedEvent;
+import com.agentstore.api.event.AgentImageStoredEvent;
 import com.agentstore.api.exception.ResourceNotFoundException;
+import com.agentstore.api.repository.AgentChangeRepository;
 import com.agentstore.api.repository.AgentRepository;
-import com.agentstore.api.repository.UserRepository;
+import com.agentstore.api.repository.projection.AgentSummary;
 import com.agentstore.api.security.UserDetailsImpl;
-import com.agentstore.api.util.ImageUtil;
+import com.agentstore.api.util.PageCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.StringUtils;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -31,60 +59,306 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class AgentService {
     
+    private static final String ROLE_ADMIN = "ROLE_ADMIN";
+    private static final String ROLE_VIP = "ROLE_VIP";
+    
+    private static final int MAX_PAGE_LIMIT = 100;
+    
+    // Listing order; id breaks ties between agents created in the same instant
+    private static final Comparator<AgentDto> CATALOG_ORDER = Comparator.comparing(AgentDto::getCreatedAt)
+            .thenComparing(AgentDto::getId);
+    
     private final AgentRepository agentRepository;
-    private final UserRepository userRepository;
+    private final AgentChangeRepository agentChangeRepository;
+    private final AgentImageService agentImageService;
+    private final AgentCatalogCache agentCatalogCache;
+    private final AgentAccessIndex agentAccessIndex;
+    private final AgentAccessService agentAccessService;
+    private final AgentHealthProber agentHealthProber;
+    private final CatalogVersion catalogVersion;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    // Beyond this many changed agents a full resync is smaller than the delta
+    @Value("${app.agents.changes.max-delta:1000}")
+    private int maxChangesDelta;
+    
+    @Value("${app.agents.changes.retention:P30D}")
+    private Duration changesRetention;
     
     /**
      * Get all agents based on user's role and permissions
+     * @param includeImage Whether to embed the base64 image fields (legacy clients) instead of only an image URL
      */
-    public List<AgentDto> getAllAgents() {
+    public List<AgentDto> getAllAgents(boolean includeImage) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
         
-        // Admin and VIP users can see all agents
-        if (hasAdminOrVipRole(authentication)) {
-            return agentRepository.findAllByOrderByCreatedAtAsc().stream()
-                    .map(this::convertToDto)
-                    .collect(Collectors.toList());
+        if (includeImage) {
+            // Admin and VIP users can see all agents
+            if (hasAdminOrVipRole(authentication)) {
+                return convertToDtos(agentRepository.findAllByOrderByCreatedAtAsc());
+            }
+            
+            // Regular users can only see assigned agents
+            return convertToDtos(agentRepository.findAllByUserIdOrderByCreatedAtAsc(userDetails.getId()));
         }
         
-        // Regular users can only see assigned agents
-        return agentRepository.findAllByUserIdOrderByCreatedAtAsc(userDetails.getId()).stream()
+        if (agentCatalogCache.isEnabled()) {
+            return findVisibleCatalog(userDetails.getId(), hasAdminOrVipRole(authentication));
+        }
+        
+        List<AgentSummary> summaries = hasAdminOrVipRole(authentication)
+                ? agentRepository.findAllSummariesByOrderByCreatedAtAsc()
+                : agentRepository.findAllSummariesByUserIdOrderByCreatedAtAsc(userDetails.getId());
+        
+        return summaries.stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
     }
     
     /**
      * Get all agents with pagination based on user's role and permissions
+     * @param includeImage Whether to embed the base64 image fields (legacy clients) instead of only an image URL
      */
-    public Page<AgentDto> getAllAgents(Pageable pageable) {
+    public Page<AgentDto> getAllAgents(Pageable pageable, boolean includeImage) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+        boolean seesAllAgents = hasAdminOrVipRole(authentication);
+        
+        // The catalog is kept in creation order, so only the default ordering can be paged from it
+        if (!includeImage && agentCatalogCache.isEnabled() && pageable.getSort().isUnsorted()) {
+            return toPage(findVisibleCatalog(userDetails.getId(), seesAllAgents), pageable);
+        }
+        
+        if (!includeImage) {
+            Page<AgentSummary> summaries = seesAllAgents
+                    ? agentRepository.findAllSummariesByOrderByCreatedAtAsc(pageable)
+                    : agentRepository.findAllSummariesByUserIdOrderByCreatedAtAsc(userDetails.getId(), pageable);
+            return summaries.map(this::convertToDto);
+        }
         
         // Admin and VIP users can see all agents
-        if (hasAdminOrVipRole(authentication)) {
-            return agentRepository.findAllByOrderByCreatedAtAsc(pageable)
-                    .map(this::convertToDto);
+        Page<Agent> agents = seesAllAgents
+                ? agentRepository.findAllByOrderByCreatedAtAsc(pageable)
+                // Regular users can only see assigned agents
+                : agentRepository.findAllByUserIdOrderByCreatedAtAsc(userDetails.getId(), pageable);
+        
+        Map<String, AgentImage> images = agentImageService.findImages(
+                agents.map(Agent::getId).getContent());
+        return agents.map(agent -> convertToDto(agent, images.get(agent.getId())));
+    }
+    
+    /**
+     * Get the page of agents that follows a cursor, based on user's role and permissions
+     * @param after Cursor returned with the previous page, or null for the first page
+     * @param limit Maximum number of agents on the page
+     * @param includeCount Whether to also count every agent the user can see
+     */
+    public CursorPage<AgentDto> getAgentsAfter(String after, int limit, boolean includeCount) {
+        if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_LIMIT);
         }
         
-        // Regular users can only see assigned agents
-        return agentRepository.findAllByUserIdOrderByCreatedAtAsc(userDetails.getId(), pageable)
-                .map(this::convertToDto);
+        PageCursor cursor = after != null ? PageCursor.decode(after) : null;
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+        boolean seesAllAgents = hasAdminOrVipRole(authentication);
+        
+        // One extra row tells whether another page follows
+        List<AgentDto> agents;
+        Long total = null;
+        if (agentCatalogCache.isEnabled()) {
+            List<AgentDto> catalog = agentCatalogCache.get(this::loadCatalog);
+            Predicate<String> visible = seesAllAgents ? agentId -> true : agentAccessIndex.visibleTo(userDetails.getId());
+            
+            agents = new ArrayList<>(limit + 1);
+            for (int i = positionAfter(catalog, cursor); i < catalog.size() && agents.size() <= limit; i++) {
+                if (visible.test(catalog.get(i).getId())) {
+                    agents.add(catalog.get(i));
+                }
+            }
+            
+            if (includeCount) {
+                total = seesAllAgents ? catalog.size() : catalog.stream().filter(agent -> visible.test(agent.getId())).count();
+            }
+        } else {
+            Pageable rows = PageRequest.of(0, limit + 1);
+            List<AgentSummary> summaries;
+            if (seesAllAgents) {
+                summaries = cursor == null
+                        ? agentRepository.findSummariesOrderByCreatedAtAndId(rows)
+                        : agentRepository.findSummariesAfter(cursor.getCreatedAt(), cursor.getId(), rows);
+            } else {
+                summaries = cursor == null
+                        ? agentRepository.findSummariesByUserIdOrderByCreatedAtAndId(userDetails.getId(), rows)
+                        : agentRepository.findSummariesByUserIdAfter(userDetails.getId(),
+                                cursor.getCreatedAt(), cursor.getId(), rows);
+            }
+            agents = summaries.stream()
+                    .map(this::convertToDto)
+                    .collect(Collectors.toList());
+            
+            if (includeCount) {
+                total = seesAllAgents ? agentRepository.count() : agentRepository.countByUserId(userDetails.getId());
+            }
+        }
+        
+        boolean hasMore = agents.size() > limit;
+        if (hasMore) {
+            agents = agents.subList(0, limit);
+        }
+        AgentDto last = hasMore ? agents.get(agents.size() - 1) : null;
+        
+        return CursorPage.<AgentDto>builder()
+                .content(agents)
+                .hasMore(hasMore)
+                .nextCursor(last != null ? new PageCursor(last.getCreatedAt(), last.getId()).encode() : null)
+                .totalElements(total)
+                .build();
+    }
+    
+    /**
+     * Search agent titles and descriptions, most relevant first, based on user's role and permissions
+     * @param query Search terms; quoted phrases, OR and -excluded words are supported
+     * @param limit Maximum number of agents to return
+     */
+    public List<AgentDto> searchAgents(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query cannot be blank");
+        }
+        if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_LIMIT);
+        }
+        
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+        
+        List<String> rankedIds = hasAdminOrVipRole(authentication)
+                ? agentRepository.searchIds(query, limit)
+                : agentRepository.searchIdsByUserId(userDetails.getId(), query, limit);
+        if (rankedIds.isEmpty()) {
+            return List.of();
+        }
+        
+        Map<String, AgentDto> agentsById = agentCatalogCache.isEnabled()
+                ? agentCatalogCache.getById(this::loadCatalog)
+                : agentRepository.findAllSummariesByIdIn(rankedIds).stream()
+                        .map(this::convertToDto)
+                        .collect(Collectors.toMap(AgentDto::getId, Function.identity()));
+        
+        // Keep the rank order; an agent deleted after the search simply drops out
+        return rankedIds.stream()
+                .map(agentsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Get the agents the current user may see that changed after a catalog version
+     * Deleted agents and revoked grants come back as tombstones; a version older than the change log
+     * answers with the whole visible catalog instead. Changes are listed once the sequencer has given them a
+     * version, normally within moments of their commit.
+     * @param since Version returned by the previous sync, or 0 for the first one
+     */
+    public AgentChanges getChangesSince(long since) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+        boolean seesAllAgents = hasAdminOrVipRole(authentication);
+        
+        // Read first: every change up to this version has committed, so the agents read below are at least as recent
+        long version = agentChangeRepository.findLatestVersion();
+        Long oldest = agentChangeRepository.findOldestVersion();
+        if (since <= 0 || since > version || (oldest != null && since < oldest - 1)) {
+            return fullResync(version, userDetails.getId(), seesAllAgents);
+        }
+        
+        // Catalog-wide changes of agents the user can not see are dropped below, without a tombstone
+        Set<String> changedIds = new LinkedHashSet<>();
+        Set<String> accessChangedIds = new HashSet<>();
+        for (AgentChange change : agentChangeRepository.findChanges(userDetails.getId(), since, version)) {
+            if (AgentChange.ROLES.equals(change.getChangeType())) {
+                return fullResync(version, userDetails.getId(), seesAllAgents);
+            }
+            changedIds.add(change.getAgentId());
+            if (change.getUserId() != null) {
+                accessChangedIds.add(change.getAgentId());
+            }
+        }
+        if (changedIds.size() > maxChangesDelta) {
+            return fullResync(version, userDetails.getId(), seesAllAgents);
+        }
+        
+        // Read from the database rather than the catalog cache, which is only rebuilt after the commit
+        Set<String> visibleIds = changedIds.isEmpty() || seesAllAgents
+                ? changedIds
+                : new HashSet<>(agentRepository.findAccessibleAgentIds(userDetails.getId(), changedIds));
+        List<AgentDto> agents = visibleIds.isEmpty()
+                ? List.of()
+                : agentRepository.findAllSummariesByIdIn(visibleIds).stream()
+                        .map(this::convertToDto)
+                        .sorted(CATALOG_ORDER)
+                        .collect(Collectors.toList());
+        
+        Set<String> currentIds = agents.stream()
+                .map(AgentDto::getId)
+                .collect(Collectors.toSet());
+        List<String> tombstones = changedIds.stream()
+                .filter(agentId -> !currentIds.contains(agentId))
+                .filter(agentId -> seesAllAgents || accessChangedIds.contains(agentId))
+                .collect(Collectors.toList());
+        
+        return AgentChanges.builder()
+                .version(version)
+                .agents(agents)
+                .tombstones(tombstones)
+                .build();
     }
     
     /**
      * Get agent by ID if user has access
      */
     public AgentDto getAgentById(String id) {
-        Agent agent = agentRepository.findById(id)
+        // Checked first, so agents the user can not see are never loaded
+        if (!hasAccessToAgent(id)) {
+            throw new ResourceNotFoundException("Agent", "id", id);
+        }
+        
+        // The agent columns and image metadata come in one query, then only the bytes are read from the image store
+        AgentSummary summary = agentRepository.findSummaryById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Agent", "id", id));
         
-        // Check if user has access to this agent
-        if (!hasAccessToAgent(agent)) {
+        AgentDto dto = convertToDto(summary);
+        agentImageService.applyLegacyImageData(dto, summary.getImageHash());
+        return dto;
+    }
+    
+    /**
+     * Get the latest health probe of an agent if user has access
+     */
+    public AgentHealth getAgentHealth(String id) {
+        if (!hasAccessToAgent(id) || !agentRepository.existsById(id)) {
             throw new ResourceNotFoundException("Agent", "id", id);
         }
         
-        return convertToDto(agent);
+        return agentHealthProber.getHealth(id).orElseGet(() -> AgentHealth.builder()
+                .agentId(id)
+                .status(AgentHealthStatus.UNKNOWN)
+                .build());
+    }
+    
+    /**
+     * Get agents as listed by ID, without checking access; deleted agents are left out
+     * Read from the database rather than the catalog cache, which may not have been rebuilt yet for the changes
+     * being streamed.
+     */
+    public Map<String, AgentDto> findListedAgents(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        
+        return agentRepository.findAllSummariesByIdIn(ids).stream()
+                .map(this::convertToDto)
+                .collect(Collectors.toMap(AgentDto::getId, agent -> agent));
     }
     
     /**
@@ -92,40 +366,23 @@ public class AgentService {
      */
     @Transactional
     public AgentDto createAgent(AgentDto agentDto) {
-        // Process image data if provided
-        String imageData = null;
-        String mimeType = null;
-        
-        if (StringUtils.hasText(agentDto.getImageDataUrl())) {
-            String[] imageDataParts = ImageUtil.parseDataUrl(agentDto.getImageDataUrl());
-            if (imageDataParts != null) {
-                mimeType = imageDataParts[0];
-                imageData = imageDataParts[1];
-            } else {
-                throw new IllegalArgumentException("Invalid image data URL format or unsupported image type");
-            }
-        } else if (StringUtils.hasText(agentDto.getImageData()) && StringUtils.hasText(agentDto.getMimeType())) {
-            if (ImageUtil.isValidImage(agentDto.getImageData(), agentDto.getMimeType())) {
-                imageData = agentDto.getImageData();
-                mimeType = agentDto.getMimeType();
-            } else {
-                throw new IllegalArgumentException("Invalid image data or unsupported image type");
-            }
-        }
-        
         Agent agent = Agent.builder()
                 .id(agentDto.getId())
                 .title(agentDto.getTitle())
                 .description(agentDto.getDescription())
-                .imageData(imageData)
-                .mimeType(mimeType)
                 .linkUrl(agentDto.getLinkUrl())
                 .port(agentDto.getPort())
                 .createdAt(LocalDateTime.now())
                 .updatedAt(LocalDateTime.now())
                 .build();
         
-        Agent savedAgent = agentRepository.save(agent);
+        // Flushed so the image row can reference the agent
+        Agent savedAgent = agentRepository.saveAndFlush(agent);
+        
+        // Process image data if provided
+        agentImageService.saveImageFromDto(savedAgent.getId(), agentDto);
+        eventPublisher.publishEvent(new AgentCatalogChangedEvent(savedAgent.getId(), true));
+        
         return convertToDto(savedAgent);
     }
     
@@ -141,28 +398,14 @@ public class AgentService {
         agent.setDescription(agentDto.getDescription());
         agent.setLinkUrl(agentDto.getLinkUrl());
         agent.setPort(agentDto.getPort());
+        agent.setUpdatedAt(LocalDateTime.now());
         
-        // Process image data if provided
-        if (StringUtils.hasText(agentDto.getImageDataUrl())) {
-            String[] imageDataParts = ImageUtil.parseDataUrl(agentDto.getImageDataUrl());
-            if (imageDataParts != null) {
-                agent.setMimeType(imageDataParts[0]);
-                agent.setImageData(imageDataParts[1]);
-            } else {
-                throw new IllegalArgumentException("Invalid image data URL format or unsupported image type");
-            }
-        } else if (StringUtils.hasText(agentDto.getImageData()) && StringUtils.hasText(agentDto.getMimeType())) {
-            if (ImageUtil.isValidImage(agentDto.getImageData(), agentDto.getMimeType())) {
-                agent.setImageData(agentDto.getImageData());
-                agent.setMimeType(agentDto.getMimeType());
-            } else {
-                throw new IllegalArgumentException("Invalid image data or unsupported image type");
-            }
-        }
+        Agent updatedAgent = agentRepository.saveAndFlush(agent);
         
-        agent.setUpdatedAt(LocalDateTime.now());
+        // Process image data if provided
+        agentImageService.saveImageFromDto(updatedAgent.getId(), agentDto);
+        eventPublisher.publishEvent(new AgentCatalogChangedEvent(updatedAgent.getId()));
         
-        Agent updatedAgent = agentRepository.save(agent);
         return convertToDto(updatedAgent);
     }
     
@@ -171,91 +414,237 @@ public class AgentService {
      */
     @Transactional
     public ApiResponse<String> deleteAgent(String id) {
-        if (!agentRepository.existsById(id)) {
+        // The agent row is locked before its image, in the same order as updateAgent, so the two never deadlock
+        if (agentRepository.lockById(id).isEmpty()) {
             throw new ResourceNotFoundException("Agent", "id", id);
         }
         
+        agentImageService.deleteImage(id);
         agentRepository.deleteById(id);
+        eventPublisher.publishEvent(new AgentDeletedEvent(id));
         return ApiResponse.success("Agent deleted successfully");
     }
     
     /**
      * Assign agent access to a user
      */
-    @Transactional
     public ApiResponse<String> assignAgentToUser(Long userId, String agentId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
+        // Inserts the single grant row, without loading the user's other agents
+        agentAccessService.grant(userId, Set.of(agentId));
         
-        Agent agent = agentRepository.findById(agentId)
-                .orElseThrow(() -> new ResourceNotFoundException("Agent", "id", agentId));
+        return ApiResponse.success("Agent access assigned to user successfully");
+    }
+    
+    /**
+     * Revoke agent access from a user
+     */
+    public ApiResponse<String> revokeAgentFromUser(Long userId, String agentId) {
+        agentAccessService.revoke(userId, Set.of(agentId));
         
-        // Add agent to user's accessible agents
-        if (user.getAccessibleAgents() == null) {
-            user.setAccessibleAgents(new HashSet<>());
+        return ApiResponse.success("Agent access revoked from user successfully");
+    }
+    
+    /**
+     * Get the ETag of the agent listings the current user can see, without reading them
+     */
+    public String getCatalogETag() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (hasAdminOrVipRole(authentication)) {
+            return catalogVersion.etag("all");
         }
-        user.getAccessibleAgents().add(agent);
-        userRepository.save(user);
         
-        return ApiResponse.success("Agent access assigned to user successfully");
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+        return catalogVersion.etag("user" + userDetails.getId());
     }
     
     /**
-     * Revoke agent access from a user
+     * Get catalog cache hit and miss counters
+     */
+    public CatalogCacheStats getCatalogCacheStats() {
+        return agentCatalogCache.getStats();
+    }
+    
+    /**
+     * Drop change log entries older than the retention period; clients that synced before them get a full resync
      */
+    @Scheduled(fixedDelayString = "${app.agents.changes.prune-interval:PT1H}")
     @Transactional
-    public ApiResponse<String> revokeAgentFromUser(Long userId, String agentId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
+    public void pruneChangeLog() {
+        int pruned = agentChangeRepository.deleteChangedBefore(LocalDateTime.now().minus(changesRetention));
+        if (pruned > 0) {
+            log.info("Pruned {} agent changes older than {}", pruned, changesRetention);
+        }
+    }
+    
+    /**
+     * Rebuild the cached catalog once a change to an agent, its image or its health is committed
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(classes = {AgentCatalogChangedEvent.class, AgentDeletedEvent.class, AgentImageStoredEvent.class,
+            AgentHealthChangedEvent.class}, fallbackExecution = true)
+    public void onCatalogChanged() {
+        if (agentCatalogCache.isEnabled()) {
+            agentCatalogCache.reload(this::loadCatalog);
+        }
+    }
+    
+    /**
+     * Get the agents a user may see from the cached catalog
+     */
+    private List<AgentDto> findVisibleCatalog(Long userId, boolean seesAllAgents) {
+        List<AgentDto> catalog = agentCatalogCache.get(this::loadCatalog);
+        if (seesAllAgents) {
+            return catalog;
+        }
         
-        Agent agent = agentRepository.findById(agentId)
-                .orElseThrow(() -> new ResourceNotFoundException("Agent", "id", agentId));
+        Predicate<String> visible = agentAccessIndex.visibleTo(userId);
+        return catalog.stream()
+                .filter(agent -> visible.test(agent.getId()))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Build the lean listing of every agent in creation order
+     */
+    private List<AgentDto> loadCatalog() {
+        // Sorted here as well, so cursors seek with the same id ordering regardless of the database collation
+        return agentRepository.findAllSummariesByOrderByCreatedAtAsc().stream()
+                .map(this::convertToDto)
+                .sorted(CATALOG_ORDER)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Build a sync response holding every agent the user may see, read from the database
+     */
+    private AgentChanges fullResync(long version, Long userId, boolean seesAllAgents) {
+        List<AgentSummary> summaries = seesAllAgents
+                ? agentRepository.findAllSummariesByOrderByCreatedAtAsc()
+                : agentRepository.findAllSummariesByUserIdOrderByCreatedAtAsc(userId);
         
-        // Remove agent from user's accessible agents
-        if (user.getAccessibleAgents() != null) {
-            user.getAccessibleAgents().remove(agent);
-            userRepository.save(user);
+        return AgentChanges.builder()
+                .version(version)
+                .fullResync(true)
+                .agents(summaries.stream()
+                        .map(this::convertToDto)
+                        .sorted(CATALOG_ORDER)
+                        .collect(Collectors.toList()))
+                .tombstones(List.of())
+                .build();
+    }
+    
+    /**
+     * Find the index of the first catalog entry after a cursor
+     */
+    private static int positionAfter(List<AgentDto> catalog, PageCursor cursor) {
+        if (cursor == null) {
+            return 0;
         }
         
-        return ApiResponse.success("Agent access revoked from user successfully");
+        AgentDto probe = AgentDto.builder()
+                .createdAt(cursor.getCreatedAt())
+                .id(cursor.getId())
+                .build();
+        int index = Collections.binarySearch(catalog, probe, CATALOG_ORDER);
+        return index >= 0 ? index + 1 : -(index + 1);
+    }
+    
+    private static Page<AgentDto> toPage(List<AgentDto> agents, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(agents);
+        }
+        
+        int from = (int) Math.min(pageable.getOffset(), agents.size());
+        int to = Math.min(from + pageable.getPageSize(), agents.size());
+        return new PageImpl<>(agents.subList(from, to), pageable, agents.size());
+    }
+    
+    /**
+     * Convert Agent entities to AgentDtos, loading their images in a single query
+     */
+    private List<AgentDto> convertToDtos(List<Agent> agents) {
+        Map<String, AgentImage> images = agentImageService.findImages(
+                agents.stream().map(Agent::getId).collect(Collectors.toList()));
+        
+        return agents.stream()
+                .map(agent -> convertToDto(agent, images.get(agent.getId())))
+                .collect(Collectors.toList());
     }
     
     /**
      * Convert Agent entity to AgentDto
      */
     private AgentDto convertToDto(Agent agent) {
+        return convertToDto(agent, agentImageService.findImage(agent.getId()).orElse(null));
+    }
+    
+    /**
+     * Convert Agent entity and its stored image to AgentDto
+     */
+    private AgentDto convertToDto(Agent agent, AgentImage image) {
         AgentDto dto = AgentDto.builder()
                 .id(agent.getId())
                 .title(agent.getTitle())
                 .description(agent.getDescription())
-                .imageData(agent.getImageData())
-                .mimeType(agent.getMimeType())
                 .linkUrl(agent.getLinkUrl())
                 .port(agent.getPort())
                 .createdAt(agent.getCreatedAt())
                 .updatedAt(agent.getUpdatedAt())
                 .build();
         
-        // Create imageDataUrl for frontend if image data exists
-        if (StringUtils.hasText(agent.getImageData()) && StringUtils.hasText(agent.getMimeType())) {
-            dto.setImageDataUrl(ImageUtil.createDataUrl(agent.getMimeType(), agent.getImageData()));
-        }
+        // Expose the binary image through the legacy base64 fields
+        agentImageService.applyLegacyImageFields(dto, image);
+        applyHealth(dto);
+        
+        return dto;
+    }
+    
+    /**
+     * Convert an agent listing projection to a lean AgentDto that links to its image
+     */
+    private AgentDto convertToDto(AgentSummary summary) {
+        AgentDto dto = AgentDto.builder()
+                .id(summary.getId())
+                .title(summary.getTitle())
+                .description(summary.getDescription())
+                .mimeType(summary.getMimeType())
+                .imageUrl(agentImageService.buildImageUrl(summary.getId(), summary.getImageHash()))
+                .imageStatus(summary.getImageStatus() != null ? summary.getImageStatus().name() : null)
+                .imagePlaceholder(summary.getImagePlaceholder())
+                .linkUrl(summary.getLinkUrl())
+                .port(summary.getPort())
+                .createdAt(summary.getCreatedAt())
+                .updatedAt(summary.getUpdatedAt())
+                .build();
+        applyHealth(dto);
         
         return dto;
     }
     
+    /**
+     * Fill the status of the latest health probe; cached listings are rebuilt when a status changes
+     */
+    private void applyHealth(AgentDto dto) {
+        agentHealthProber.getHealth(dto.getId()).ifPresent(health -> dto.setStatus(health.getStatus().name()));
+    }
+    
     /**
      * Check if current user has admin or VIP role
      */
-    private boolean hasAdminOrVipRole(Authentication authentication) {
-        return authentication.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_ADMIN")) ||
-                authentication.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_VIP"));
+    boolean hasAdminOrVipRole(Authentication authentication) {
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            String role = authority.getAuthority();
+            if (ROLE_ADMIN.equals(role) || ROLE_VIP.equals(role)) {
+                return true;
+            }
+        }
+        return false;
     }
     
     /**
      * Check if current user has access to specific agent
      */
-    private boolean hasAccessToAgent(Agent agent) {
+    public boolean hasAccessToAgent(String agentId) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         
         // Admin and VIP users can access all agents
@@ -265,15 +654,6 @@ public class AgentService {
         
         // For regular users, check if they have explicit access
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-        Long userId = userDetails.getId();
-        
-        // Check if user has explicit access to this agent
-        for (User user : agent.getUsersWithAccess()) {
-            if (user.getId().equals(userId)) {
-                return true;
-            }
-        }
-        
-        return false;
+        return agentAccessIndex.hasAccess(userDetails.getId(), agentId);
     }
 } 
\ No newline at end of file
@@ -4,12 +4,14 @@ import com.agentstore.api.dto.*;
 import com.agentstore.api.entity.RefreshToken;
 import com.agentstore.api.entity.Role;
 import com.agentstore.api.entity.User;
+import com.agentstore.api.event.UserChangedEvent;
 import com.agentstore.api.exception.TokenRefreshException;
 import com.agentstore.api.repository.RoleRepository;
 import com.agentstore.api.repository.UserRepository;
 import com.agentstore.api.security.JwtUtils;
 import com.agentstore.api.security.UserDetailsImpl;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -34,6 +36,7 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtUtils jwtUtils;
     private final RefreshTokenService refreshTokenService;
+    private final ApplicationEventPublisher eventPublisher;
     
     public JwtResponse authenticateUser(LoginRequest loginRequest) {
         Authentication authentication = authenticationManager.authenticate(
@@ -87,7 +90,8 @@ public class AuthService {
         roles.add(userRole);
         
         user.setRoles(roles);
-        userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(savedUser.getId()));
         
         return ApiResponse.success("User registered successfully");
     }
@@ -0,0 +1,50 @@
+package com.agentstore.api.service;
+
+import com.agentstore.api.event.AgentAccessBulkChangedEvent;
+import com.agentstore.api.event.AgentAccessChangedEvent;
+import com.agentstore.api.event.AgentCatalogChangedEvent;
+import com.agentstore.api.event.AgentDeletedEvent;
+import com.agentstore.api.event.AgentHealthChangedEvent;
+import com.agentstore.api.event.AgentImageStoredEvent;
+import com.agentstore.api.event.UserChangedEvent;
+import com.agentstore.api.event.UserDeletedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic version of the agent catalog, users and access grants, used as the ETag of list responses
+ * Clients revalidating an unchanged list get a 304 without the list being read or serialized.
+ */
+@Component
+public class CatalogVersion {
+    
+    // Distinguishes restarts, since the counter starts over and would otherwise repeat old ETags
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    
+    private final AtomicLong version = new AtomicLong();
+    
+    /**
+     * Build the ETag of a list response; must be taken before the list is read, never after
+     * @param scope What the caller is allowed to see, so callers with different visibility never share an ETag
+     */
+    public String etag(String scope) {
+        return "\"" + epoch + "-" + version.get() + "-" + scope + "\"";
+    }
+    
+    /**
+     * Bump the version once a change is committed
+     * Runs after the other listeners have refreshed the catalog cache and access index, so a response built
+     * for the new version can never contain data from before the change
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(classes = {AgentCatalogChangedEvent.class, AgentDeletedEvent.class,
+            AgentImageStoredEvent.class, AgentHealthChangedEvent.class, AgentAccessChangedEvent.class,
+            AgentAccessBulkChangedEvent.class, UserChangedEvent.class, UserDeletedEvent.class}, fallbackExecution = true)
+    public void bump() {
+        version.incrementAndGet();
+    }
+}
@@ -0,0 +1,257 @@
+package com.agentstore.api.service;
+
+import com.agentstore.api.entity.AgentImageVariant;
+import com.agentstore.api.entity.ImageVariantStatus;
+import com.agentstore.api.event.AgentCatalogChangedEvent;
+import com.agentstore.api.event.AgentImageStoredEvent;
+import com.agentstore.api.repository.AgentImageRepository;
+import com.agentstore.api.repository.AgentImageVariantRepository;
+import com.agentstore.api.storage.ImageStore;
+import com.agentstore.api.util.ImageUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates downscaled variants and an inline placeholder for agent images in the background
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImageVariantService {
+    
+    // Images above this many pixels are rejected before decoding to guard against decompression bombs
+    private static final long MAX_SOURCE_PIXELS = 64L * 1024 * 1024;
+    
+    @Value("${app.images.variants.sizes:64,128,256}")
+    private int[] variantSizes;
+    
+    @Value("${app.images.variants.placeholder-size:16}")
+    private int placeholderSize;
+    
+    @Value("${app.images.processing.pool-size:2}")
+    private int poolSize;
+    
+    @Value("${app.images.processing.queue-capacity:100}")
+    private int queueCapacity;
+    
+    private final AgentImageRepository agentImageRepository;
+    private final AgentImageVariantRepository agentImageVariantRepository;
+    private final ImageStore imageStore;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    private ThreadPoolExecutor executor;
+    
+    @PostConstruct
+    void startExecutor() {
+        variantSizes = Arrays.stream(variantSizes).sorted().distinct().toArray();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("image-variants-"));
+        executor.allowCoreThreadTimeOut(true);
+    }
+    
+    @PreDestroy
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+    
+    /**
+     * Resolve a requested size to the smallest configured variant that is at least as large
+     * @return The variant size, or empty if the original image should be served
+     */
+    public Optional<Integer> resolveVariantSize(Integer requestedSize) {
+        if (requestedSize == null) {
+            return Optional.empty();
+        }
+        
+        return Arrays.stream(variantSizes)
+                .filter(size -> size >= requestedSize)
+                .boxed()
+                .findFirst();
+    }
+    
+    /**
+     * Queue variant generation once the transaction that stored the image has committed
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onImageStored(AgentImageStoredEvent event) {
+        submit(event.getAgentId(), event.getContentHash());
+    }
+    
+    /**
+     * Pick up images left pending by a restart or a full queue
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void processPendingImages() {
+        agentImageRepository.findMetadataByVariantStatusIn(
+                        List.of(ImageVariantStatus.PENDING, ImageVariantStatus.PROCESSING))
+                .forEach(image -> submit(image.getAgentId(), image.getContentHash()));
+    }
+    
+    private void submit(String agentId, String contentHash) {
+        try {
+            executor.execute(() -> generateVariants(agentId, contentHash));
+        } catch (RejectedExecutionException e) {
+            // The image stays PENDING and is picked up again on the next startup
+            log.warn("Image variant queue is full, deferring variants for agent {}", agentId);
+        }
+    }
+    
+    private void generateVariants(String agentId, String contentHash) {
+        Optional<byte[]> data = agentImageRepository.findById(agentId)
+                .filter(stored -> stored.getContentHash().equals(contentHash))
+                .flatMap(stored -> imageStore.readAllBytes(agentId, contentHash));
+        
+        if (data.isEmpty()) {
+            log.debug("Image of agent {} was replaced or removed, skipping variants", agentId);
+            return;
+        }
+        
+        updateStatus(agentId, contentHash, ImageVariantStatus.PROCESSING, null);
+        
+        try {
+            BufferedImage source = decode(data.get(), variantSizes[variantSizes.length - 1]);
+            if (source == null) {
+                updateStatus(agentId, contentHash, ImageVariantStatus.UNSUPPORTED, null);
+                return;
+            }
+            
+            List<AgentImageVariant> variants = new ArrayList<>();
+            for (int size : variantSizes) {
+                variants.add(encodeVariant(agentId, size, scaleToFit(source, size)));
+            }
+            
+            AgentImageVariant placeholderImage = encodeVariant(agentId, placeholderSize, scaleToFit(source, placeholderSize));
+            String placeholder = ImageUtil.toDataUrl(placeholderImage.getMimeType(),
+                    Base64.getEncoder().encodeToString(placeholderImage.getData()));
+            
+            transactionTemplate.executeWithoutResult(status -> {
+                if (agentImageRepository.updateVariantStatus(agentId, contentHash, ImageVariantStatus.READY, placeholder) == 0) {
+                    // Replaced while processing, the newer upload queues its own variants
+                    status.setRollbackOnly();
+                    return;
+                }
+                agentImageVariantRepository.deleteByAgentId(agentId);
+                agentImageVariantRepository.flush();
+                agentImageVariantRepository.saveAll(variants);
+                eventPublisher.publishEvent(new AgentCatalogChangedEvent(agentId));
+            });
+            log.debug("Generated {} image variants for agent {}", variants.size(), agentId);
+        } catch (Exception e) {
+            log.error("Failed to generate image variants for agent {}", agentId, e);
+            updateStatus(agentId, contentHash, ImageVariantStatus.FAILED, null);
+        }
+    }
+    
+    private void updateStatus(String agentId, String contentHash, ImageVariantStatus status, String placeholder) {
+        transactionTemplate.executeWithoutResult(tx -> {
+            if (agentImageRepository.updateVariantStatus(agentId, contentHash, status, placeholder) > 0) {
+                eventPublisher.publishEvent(new AgentCatalogChangedEvent(agentId));
+            }
+        });
+    }
+    
+    /**
+     * Decode an image, subsampling large sources so that no more pixels than needed are held in memory
+     * @return The decoded image, or null if no ImageIO reader supports the format
+     */
+    private BufferedImage decode(byte[] data, int largestVariant) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > MAX_SOURCE_PIXELS) {
+                    throw new IOException("Image dimensions too large: " + width + "x" + height);
+                }
+                
+                // Keep at least twice the largest variant so the final resize stays smooth
+                int subsampling = Math.max(1, Math.max(width, height) / (largestVariant * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+    
+    /**
+     * Scale an image so that its longest side is at most maxSize, never upscaling
+     */
+    private static BufferedImage scaleToFit(BufferedImage source, int maxSize) {
+        double scale = Math.min(1.0, (double) maxSize / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        
+        BufferedImage target = new BufferedImage(width, height, type);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+    
+    /**
+     * Encode a variant as PNG when it has transparency, JPEG otherwise
+     */
+    private static AgentImageVariant encodeVariant(String agentId, int size, BufferedImage image) throws IOException {
+        boolean hasAlpha = image.getColorModel().hasAlpha();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, hasAlpha ? "png" : "jpeg", out)) {
+            throw new IOException("No ImageIO writer available for variant of agent " + agentId);
+        }
+        
+        byte[] data = out.toByteArray();
+        return AgentImageVariant.builder()
+                .agentId(agentId)
+                .sizePx(size)
+                .data(data)
+                .sizeBytes(data.length)
+                .mimeType(hasAlpha ? "image/png" : "image/jpeg")
+                .contentHash(ImageUtil.sha256Hex(data))
+                .build();
+    }
+}
@@ -1,22 +1,35 @@
 package com.agentstore.api.service;
 
 import com.agentstore.api.dto.ApiResponse;
+import com.agentstore.api.dto.CursorPage;
 import com.agentstore.api.dto.RoleDto;
 import com.agentstore.api.dto.UserDto;
+import com.agentstore.api.dto.UserFilter;
+import com.agentstore.api.dto.UserSuggestion;
 import com.agentstore.api.dto.UserUpdateRequest;
-import com.agentstore.api.entity.Agent;
 import com.agentstore.api.entity.Role;
 import com.agentstore.api.entity.User;
+import com.agentstore.api.event.UserChangedEvent;
+import com.agentstore.api.event.UserDeletedEvent;
 import com.agentstore.api.exception.ResourceNotFoundException;
 import com.agentstore.api.repository.AgentRepository;
 import com.agentstore.api.repository.RoleRepository;
 import com.agentstore.api.repository.UserRepository;
+import com.agentstore.api.repository.projection.AgentAccessGrant;
+import com.agentstore.api.repository.projection.UserRoleName;
+import com.agentstore.api.repository.projection.UserSummary;
+import com.agentstore.api.util.PageCursor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -24,15 +37,104 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class UserService {
     
+    private static final int MAX_PAGE_LIMIT = 100;
+    private static final int MAX_SUGGESTIONS = 50;
+    
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final AgentRepository agentRepository;
+    private final AgentAccessService agentAccessService;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogVersion catalogVersion;
+    private final UserSuggestIndex userSuggestIndex;
+    
+    /**
+     * Get the ETag of the user list, without reading it
+     */
+    public String getUsersETag() {
+        return catalogVersion.etag("users");
+    }
     
+    /**
+     * Get the ETag of the role list, without reading it
+     */
+    public String getRolesETag() {
+        return catalogVersion.etag("roles");
+    }
+    
+    /**
+     * Get every user with their role names and agent IDs in three queries, whatever the number of users
+     * Agent IDs are read from user_agent_access alone, so agents are never loaded
+     */
+    @Transactional(readOnly = true)
     public List<UserDto> getAllUsers() {
-        return userRepository.findAllByOrderByCreatedAtAsc().stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return convertToDtos(userRepository.findAllSummariesByOrderByCreatedAtAsc(),
+                userRepository.findAllRoleNames(), agentRepository.findAllAccessGrants());
+    }
+    
+    /**
+     * Get a page of users matching a filter, in (createdAt, id) order
+     * Only the requested page is read, along with the roles and grants of its users, so a page costs the same
+     * whatever the number of users
+     * @param after The nextCursor of the previous page, null for the first page
+     * @param includeCount Whether to also count every matching user, which reads them all
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<UserDto> getUsersAfter(String after, int limit, UserFilter filter, boolean includeCount) {
+        if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_LIMIT);
+        }
+        
+        PageCursor cursor = after != null ? PageCursor.decode(after) : null;
+        Long afterId = null;
+        if (cursor != null) {
+            try {
+                afterId = Long.valueOf(cursor.getId());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid page cursor", e);
+            }
+        }
+        
+        // One extra row tells whether another page follows
+        List<UserSummary> summaries = userRepository.findSummaries(filter,
+                cursor != null ? cursor.getCreatedAt() : null, afterId, limit + 1);
+        boolean hasMore = summaries.size() > limit;
+        if (hasMore) {
+            summaries = summaries.subList(0, limit);
+        }
+        
+        List<UserDto> users = List.of();
+        if (!summaries.isEmpty()) {
+            List<Long> userIds = summaries.stream()
+                    .map(UserSummary::getId)
+                    .collect(Collectors.toList());
+            users = convertToDtos(summaries, userRepository.findRoleNamesByUserIds(userIds),
+                    agentRepository.findAccessGrantsByUserIds(userIds));
+        }
+        UserDto last = hasMore ? users.get(users.size() - 1) : null;
+        
+        return CursorPage.<UserDto>builder()
+                .content(users)
+                .hasMore(hasMore)
+                .nextCursor(last != null ? new PageCursor(last.getCreatedAt(), last.getId().toString()).encode() : null)
+                .totalElements(includeCount ? userRepository.countSummaries(filter) : null)
+                .build();
+    }
+    
+    /**
+     * Suggest users whose username or email starts with a prefix, ignoring case
+     * Answered from memory, without querying the database
+     */
+    public List<UserSuggestion> suggestUsers(String prefix, int limit) {
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_SUGGESTIONS);
+        }
+        if (prefix == null || prefix.isBlank()) {
+            return List.of();
+        }
+        
+        return userSuggestIndex.suggest(prefix.trim(), limit);
     }
     
     public UserDto getUserById(Long id) {
@@ -65,6 +167,7 @@ public class UserService {
         
         user.setRoles(roles);
         User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(savedUser.getId()));
         return convertToDto(savedUser);
     }
     
@@ -102,6 +205,7 @@ public class UserService {
         }
         
         User updatedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(id));
         return convertToDto(updatedUser);
     }
     
@@ -112,6 +216,7 @@ public class UserService {
         }
         
         userRepository.deleteById(id);
+        eventPublisher.publishEvent(new UserDeletedEvent(id));
         return ApiResponse.success("User deleted successfully");
     }
     
@@ -127,22 +232,18 @@ public class UserService {
         
         user.setRoles(roles);
         User updatedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(userId));
         return convertToDto(updatedUser);
     }
     
     @Transactional
     public UserDto updateUserAgentAccess(Long userId, List<String> agentIds) {
+        // Only the grants that differ from the current ones are inserted or deleted
+        agentAccessService.replace(userId, agentIds);
+        
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
-        
-        Set<Agent> agents = agentIds.stream()
-                .map(agentId -> agentRepository.findById(agentId)
-                        .orElseThrow(() -> new RuntimeException("Agent not found: " + agentId)))
-                .collect(Collectors.toSet());
-        
-        user.setAccessibleAgents(agents);
-        User updatedUser = userRepository.save(user);
-        return convertToDto(updatedUser);
+        return convertToDto(user);
     }
     
     public List<RoleDto> getAllRoles() {
@@ -154,6 +255,41 @@ public class UserService {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Convert users, attaching the role names and agent IDs read for them
+     */
+    private List<UserDto> convertToDtos(List<UserSummary> users, List<UserRoleName> roleNames,
+                                        List<AgentAccessGrant> grants) {
+        Map<Long, Set<String>> rolesByUser = new HashMap<>();
+        for (UserRoleName role : roleNames) {
+            rolesByUser.computeIfAbsent(role.getUserId(), userId -> new HashSet<>()).add(role.getRoleName());
+        }
+        
+        Map<Long, List<String>> agentsByUser = new HashMap<>();
+        for (AgentAccessGrant grant : grants) {
+            agentsByUser.computeIfAbsent(grant.getUserId(), userId -> new ArrayList<>()).add(grant.getAgentId());
+        }
+        
+        return users.stream()
+                .map(user -> convertToDto(user,
+                        rolesByUser.getOrDefault(user.getId(), Set.of()),
+                        agentsByUser.getOrDefault(user.getId(), List.of())))
+                .collect(Collectors.toList());
+    }
+    
+    private UserDto convertToDto(UserSummary user, Set<String> roles, List<String> agentIds) {
+        return UserDto.builder()
+                .id(user.getId())
+                .username(user.getUsername())
+                .email(user.getEmail())
+                .enabled(user.isEnabled())
+                .roles(roles)
+                .accessibleAgents(agentIds)
+                .createdAt(user.getCreatedAt())
+                .updatedAt(user.getUpdatedAt())
+                .build();
+    }
+    
     private UserDto convertToDto(User user) {
         return UserDto.builder()
                 .id(user.getId())
@@ -163,11 +299,8 @@ public class UserService {
                 .roles(user.getRoles().stream()
                         .map(Role::getName)
                         .collect(Collectors.toSet()))
-                .accessibleAgents(user.getAccessibleAgents() != null ? 
-                        user.getAccessibleAgents().stream()
-                                .map(Agent::getId)
-                                .collect(Collectors.toList()) : 
-                        List.of())
+                // Read from the join table, agents are never loaded for their IDs
+                .accessibleAgents(agentRepository.findAgentIdsByUserId(user.getId()))
                 .createdAt(user.getCreatedAt())
                 .updatedAt(user.getUpdatedAt())
                 .build();
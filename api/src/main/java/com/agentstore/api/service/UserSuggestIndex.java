@@ -0,0 +1,147 @@
+package com.agentstore.api.service;
+
+import com.agentstore.api.dto.UserSuggestion;
+import com.agentstore.api.event.UserChangedEvent;
+import com.agentstore.api.event.UserDeletedEvent;
+import com.agentstore.api.repository.UserRepository;
+import com.agentstore.api.repository.projection.UserSummary;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory index of usernames and emails, sorted case-insensitively so a prefix is found with one seek
+ * Each user is listed under two keys, its lowercase username and email followed by its ID, so users whose names
+ * differ only in case never collide. Lookups never lock; changes replace the keys of one user at a time.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserSuggestIndex {
+    
+    private static final char KEY_SEPARATOR = '\0';
+    
+    @Value("${app.users.suggest.fetch-size:1000}")
+    private int fetchSize;
+    
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    
+    private final NavigableMap<String, UserSuggestion> usersByKey = new ConcurrentSkipListMap<>();
+    private final Map<Long, UserSuggestion> usersById = new ConcurrentHashMap<>();
+    
+    private volatile boolean loaded;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        ensureLoaded();
+    }
+    
+    /**
+     * Find the users whose username or email starts with a prefix, ignoring case
+     * @return At most limit users, in order of the matching username or email
+     */
+    public List<UserSuggestion> suggest(String prefix, int limit) {
+        ensureLoaded();
+        String from = prefix.toLowerCase(Locale.ROOT);
+        
+        // Both keys of a user may match, so users are collected until enough distinct ones are found
+        Map<Long, UserSuggestion> matches = new LinkedHashMap<>();
+        for (UserSuggestion user : usersByKey.subMap(from, true, from + Character.MAX_VALUE, false).values()) {
+            matches.putIfAbsent(user.getId(), user);
+            if (matches.size() >= limit) {
+                break;
+            }
+        }
+        return new ArrayList<>(matches.values());
+    }
+    
+    /**
+     * Get the number of indexed users
+     */
+    public int size() {
+        return usersById.size();
+    }
+    
+    // Waits for a load in progress, then re-reads the user, so a change committed during the load is never lost
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onUserChanged(UserChangedEvent event) {
+        if (!loaded) {
+            // The initial load reads the committed users, including this one
+            return;
+        }
+        
+        userRepository.findSummaryById(event.getUserId()).ifPresentOrElse(this::put, () -> remove(event.getUserId()));
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onUserDeleted(UserDeletedEvent event) {
+        if (loaded) {
+            remove(event.getUserId());
+        }
+    }
+    
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        
+        synchronized (this) {
+            if (!loaded) {
+                load();
+                loaded = true;
+            }
+        }
+    }
+    
+    private void load() {
+        long start = System.nanoTime();
+        // The cursor only streams inside a transaction
+        transactionTemplate.executeWithoutResult(status -> userRepository.forEachUserSummary(fetchSize, this::put));
+        log.info("Loaded user suggestion index with {} users in {} ms",
+                usersById.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+    
+    private void put(UserSummary summary) {
+        UserSuggestion user = UserSuggestion.builder()
+                .id(summary.getId())
+                .username(summary.getUsername())
+                .email(summary.getEmail())
+                .enabled(summary.isEnabled())
+                .build();
+        
+        UserSuggestion previous = usersById.put(user.getId(), user);
+        if (previous != null) {
+            usersByKey.remove(key(previous.getUsername(), previous.getId()));
+            usersByKey.remove(key(previous.getEmail(), previous.getId()));
+        }
+        usersByKey.put(key(user.getUsername(), user.getId()), user);
+        usersByKey.put(key(user.getEmail(), user.getId()), user);
+    }
+    
+    private void remove(Long userId) {
+        UserSuggestion previous = usersById.remove(userId);
+        if (previous != null) {
+            usersByKey.remove(key(previous.getUsername(), previous.getId()));
+            usersByKey.remove(key(previous.getEmail(), previous.getId()));
+        }
+    }
+    
+    private static String key(String value, Long userId) {
+        return value.toLowerCase(Locale.ROOT) + KEY_SEPARATOR + userId;
+    }
+}
@@ -0,0 +1,117 @@
+package com.agentstore.api.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Keeps image bytes in the image_blobs.data column
+ * The driver reads a whole bytea value into memory, so reads fetch fixed-size substring windows one query at a time
+ * and never hold more than one window of an image.
+ */
+@Component
+@RequiredArgsConstructor
+public class DatabaseImageStore implements ImageStore {
+    
+    public static final String NAME = "database";
+    
+    private static final int READ_WINDOW_BYTES = 256 * 1024;
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public String getName() {
+        return NAME;
+    }
+    
+    @Override
+    public boolean exists(String agentId, String contentHash) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM image_blobs " +
+                "WHERE content_hash = ? AND data IS NOT NULL)", Boolean.class, contentHash));
+    }
+    
+    @Override
+    public void write(String agentId, String contentHash, InputStream data, long size) {
+        int updated = jdbcTemplate.update("UPDATE image_blobs SET data = ? WHERE content_hash = ?", ps -> {
+            // The driver sends the stream in the bind message without buffering it
+            ps.setBinaryStream(1, data, size);
+            ps.setString(2, contentHash);
+        });
+        
+        if (updated == 0) {
+            throw new IllegalStateException("No image blob with hash " + contentHash);
+        }
+    }
+    
+    @Override
+    public long copyTo(String agentId, String contentHash, OutputStream out) {
+        return copy("data", contentHash, 0, Long.MAX_VALUE, out);
+    }
+    
+    @Override
+    public long copyRange(String agentId, String contentHash, long start, long length, OutputStream out) {
+        return copy("data", contentHash, start, length, out);
+    }
+    
+    @Override
+    public void writeGzip(String agentId, String contentHash, InputStream data, long size) {
+        int updated = jdbcTemplate.update("UPDATE image_blobs SET gzip_data = ? WHERE content_hash = ?", ps -> {
+            ps.setBinaryStream(1, data, size);
+            ps.setString(2, contentHash);
+        });
+        
+        if (updated == 0) {
+            throw new IllegalStateException("No image blob with hash " + contentHash);
+        }
+    }
+    
+    @Override
+    public long copyGzipTo(String agentId, String contentHash, OutputStream out) {
+        return copy("gzip_data", contentHash, 0, Long.MAX_VALUE, out);
+    }
+    
+    @Override
+    public void delete(String contentHash) {
+        // The bytes live in the blob row, which is deleted together with its last reference
+    }
+    
+    /**
+     * Copy up to length bytes of a column from start, one window per query
+     * substring() is evaluated by the server, so only the bytes of each window cross the wire. Blobs are content
+     * addressed and never rewritten, so the windows of one image always fit together.
+     * @return The number of bytes copied, or -1 if there is no such image
+     */
+    private long copy(String column, String contentHash, long start, long length, OutputStream out) {
+        String sql = "SELECT substring(" + column + " FROM ? FOR ?) FROM image_blobs " +
+                "WHERE content_hash = ? AND " + column + " IS NOT NULL";
+        long written = 0;
+        while (written < length) {
+            int window = (int) Math.min(READ_WINDOW_BYTES, length - written);
+            List<byte[]> chunk = jdbcTemplate.query(sql, (rs, rowNum) -> rs.getBytes(1),
+                    Math.toIntExact(start + written + 1), window, contentHash);
+            if (chunk.isEmpty()) {
+                if (written == 0) {
+                    return -1L;
+                }
+                throw new IllegalStateException("Image blob " + contentHash + " was deleted while being read");
+            }
+            
+            try {
+                out.write(chunk.get(0));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            written += chunk.get(0).length;
+            if (chunk.get(0).length < window) {
+                break;
+            }
+        }
+        return written;
+    }
+}
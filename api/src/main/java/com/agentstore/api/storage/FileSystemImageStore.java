@@ -0,0 +1,181 @@
+package com.agentstore.api.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps image bytes as files on local disk, addressed by content hash
+ * Files are laid out as {root}/{first two hash characters}/{hash}, so identical images share one file;
+ * a gzip compressed copy, if any, sits next to the original as {hash}.gz
+ */
+@Slf4j
+@Component
+public class FileSystemImageStore implements ImageStore {
+    
+    public static final String NAME = "filesystem";
+    
+    private static final Pattern CONTENT_HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+    private static final String GZIP_SUFFIX = ".gz";
+    
+    private final Path root;
+    
+    public FileSystemImageStore(@Value("${app.images.store.filesystem.root:./data/images}") String root) {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+    }
+    
+    @Override
+    public String getName() {
+        return NAME;
+    }
+    
+    @Override
+    public boolean exists(String agentId, String contentHash) {
+        return Files.isRegularFile(resolve(contentHash));
+    }
+    
+    @Override
+    public void write(String agentId, String contentHash, InputStream data, long size) {
+        writeFile(resolve(contentHash), data, size);
+    }
+    
+    @Override
+    public void writeGzip(String agentId, String contentHash, InputStream data, long size) {
+        writeFile(resolveGzip(contentHash), data, size);
+    }
+    
+    @Override
+    public long copyTo(String agentId, String contentHash, OutputStream out) {
+        return copyFile(resolve(contentHash), 0, Long.MAX_VALUE, out);
+    }
+    
+    @Override
+    public long copyRange(String agentId, String contentHash, long start, long length, OutputStream out) {
+        return copyFile(resolve(contentHash), start, length, out);
+    }
+    
+    @Override
+    public long copyGzipTo(String agentId, String contentHash, OutputStream out) {
+        return copyFile(resolveGzip(contentHash), 0, Long.MAX_VALUE, out);
+    }
+    
+    @Override
+    public void delete(String contentHash) {
+        deleteFile(resolve(contentHash));
+        deleteFile(resolveGzip(contentHash));
+    }
+    
+    @Override
+    public Optional<Path> findFile(String agentId, String contentHash) {
+        Path file = resolve(contentHash);
+        return Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+    
+    @Override
+    public Optional<Path> findGzipFile(String agentId, String contentHash) {
+        Path file = resolveGzip(contentHash);
+        return Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+    
+    private void writeFile(Path target, InputStream data, long size) {
+        if (Files.isRegularFile(target)) {
+            // Same hash, same bytes: nothing to write
+            return;
+        }
+        
+        Path temp = null;
+        try {
+            Files.createDirectories(target.getParent());
+            temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            
+            long written = Files.copy(data, temp, StandardCopyOption.REPLACE_EXISTING);
+            if (written != size) {
+                throw new IOException("Expected " + size + " image bytes but got " + written);
+            }
+            
+            // Readers only ever see complete files
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Wrote image file {}", target);
+        } catch (FileAlreadyExistsException e) {
+            log.debug("Image file {} was written concurrently", target);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write image file " + target, e);
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+    
+    private static long copyFile(Path file, long start, long length, OutputStream out) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long end = start + Math.min(length, channel.size() - start);
+            long position = start;
+            
+            // transferTo may copy fewer bytes than asked, so loop until the range is done
+            while (position < end) {
+                long transferred = channel.transferTo(position, end - position, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+            return position - start;
+        } catch (NoSuchFileException e) {
+            return -1L;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private Path resolve(String contentHash) {
+        // The hash becomes a path, so anything but lowercase hex must never reach the filesystem
+        if (contentHash == null || !CONTENT_HASH_PATTERN.matcher(contentHash).matches()) {
+            throw new IllegalArgumentException("Invalid image content hash: " + contentHash);
+        }
+        return root.resolve(contentHash.substring(0, 2)).resolve(contentHash);
+    }
+    
+    private Path resolveGzip(String contentHash) {
+        Path file = resolve(contentHash);
+        return file.resolveSibling(file.getFileName() + GZIP_SUFFIX);
+    }
+    
+    private static void deleteFile(Path file) {
+        try {
+            if (Files.deleteIfExists(file)) {
+                log.debug("Deleted unreferenced image file {}", file);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to delete unreferenced image file {}", file, e);
+        }
+    }
+    
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete temporary image file {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.agentstore.api.storage;
+
+import com.agentstore.api.dto.ImageCacheStats;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded LRU cache of raw agent image bytes, held off-heap in direct buffers
+ * Entries are keyed by agent ID and content hash, so a replaced image never matches its stale entry
+ */
+@Slf4j
+@Component
+public class ImageCache {
+    
+    @Value("${app.images.cache.max-bytes:67108864}")
+    private long maxBytes;
+    
+    @Value("${app.images.cache.max-entry-bytes:2097152}")
+    private long maxEntryBytes;
+    
+    // Access ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, CachedImage> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    
+    /**
+     * Get a cached image, loading it into the cache on a miss when it fits the budget
+     * @param loader Copies the image bytes to the given stream, returning the number of bytes written or -1
+     * @return A read-only view of the image bytes, or empty if the image is not cacheable or could not be loaded
+     */
+    public Optional<ByteBuffer> get(String agentId, String contentHash, long size,
+                                    Function<OutputStream, Long> loader) {
+        synchronized (entries) {
+            CachedImage cached = entries.get(agentId);
+            if (cached != null && cached.getContentHash().equals(contentHash)) {
+                hits.incrementAndGet();
+                return Optional.of(cached.getData().asReadOnlyBuffer());
+            }
+        }
+        
+        misses.incrementAndGet();
+        if (size <= 0 || size > Math.min(maxEntryBytes, maxBytes)) {
+            return Optional.empty();
+        }
+        
+        // Loaded outside the lock; concurrent misses on the same image may both load it, which is harmless
+        ByteBuffer data = ByteBuffer.allocateDirect((int) size);
+        try {
+            if (loader.apply(new ByteBufferOutputStream(data)) != size) {
+                return Optional.empty();
+            }
+        } catch (BufferOverflowException e) {
+            log.warn("Image of agent {} is larger than its recorded size of {} bytes", agentId, size);
+            return Optional.empty();
+        }
+        data.flip();
+        
+        put(agentId, new CachedImage(contentHash, data));
+        return Optional.of(data.asReadOnlyBuffer());
+    }
+    
+    /**
+     * Drop the cached image of an agent, if any
+     */
+    public void invalidate(String agentId) {
+        synchronized (entries) {
+            CachedImage removed = entries.remove(agentId);
+            if (removed != null) {
+                usedBytes -= removed.getData().capacity();
+            }
+        }
+    }
+    
+    public ImageCacheStats getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long requests = hitCount + missCount;
+        
+        synchronized (entries) {
+            return ImageCacheStats.builder()
+                    .hits(hitCount)
+                    .misses(missCount)
+                    .evictions(evictions.get())
+                    .hitRatio(requests == 0 ? 0 : (double) hitCount / requests)
+                    .entries(entries.size())
+                    .usedBytes(usedBytes)
+                    .maxBytes(maxBytes)
+                    .build();
+        }
+    }
+    
+    /**
+     * Write part of a cached image to a stream
+     * The bytes go through the channel's small transfer buffer, the image itself is never copied onto the heap
+     */
+    public static void write(ByteBuffer data, long start, long length, OutputStream out) throws IOException {
+        ByteBuffer range = data.duplicate();
+        range.position((int) start).limit((int) (start + length));
+        
+        WritableByteChannel channel = Channels.newChannel(out);
+        while (range.hasRemaining()) {
+            channel.write(range);
+        }
+    }
+    
+    private void put(String agentId, CachedImage image) {
+        synchronized (entries) {
+            CachedImage previous = entries.put(agentId, image);
+            if (previous != null) {
+                usedBytes -= previous.getData().capacity();
+            }
+            usedBytes += image.getData().capacity();
+            
+            Iterator<Map.Entry<String, CachedImage>> eldest = entries.entrySet().iterator();
+            while (usedBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, CachedImage> entry = eldest.next();
+                // Direct memory is released once the evicted buffer is garbage collected
+                usedBytes -= entry.getValue().getData().capacity();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+    
+    @Getter
+    @RequiredArgsConstructor
+    private static class CachedImage {
+        
+        private final String contentHash;
+        private final ByteBuffer data;
+    }
+    
+    /**
+     * Fills a preallocated buffer, failing rather than growing when more bytes arrive than expected
+     */
+    private static class ByteBufferOutputStream extends OutputStream {
+        
+        private final ByteBuffer buffer;
+        
+        ByteBufferOutputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+        
+        @Override
+        public void write(int b) {
+            buffer.put((byte) b);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) {
+            buffer.put(b, off, len);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.agentstore.api.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Storage backend for the bytes of agent images
+ * Image metadata always lives in agent_images and reference counts in image_blobs; a store only keeps the payload,
+ * addressed by content hash (the agent ID is passed along for logging and backends that want it)
+ */
+public interface ImageStore {
+    
+    /**
+     * @return The name used to select this store in app.images.store.type
+     */
+    String getName();
+    
+    /**
+     * Checks whether the store holds the given image
+     */
+    boolean exists(String agentId, String contentHash);
+    
+    /**
+     * Stores the bytes of an image whose blob row already exists
+     * @param data The raw image bytes, read exactly size bytes
+     * @param size The number of bytes in the image
+     */
+    void write(String agentId, String contentHash, InputStream data, long size);
+    
+    /**
+     * Copies the stored image bytes to the given stream
+     * @return The number of bytes written, or -1 if the store does not hold the image
+     */
+    long copyTo(String agentId, String contentHash, OutputStream out);
+    
+    /**
+     * Copies part of the stored image bytes to the given stream
+     * @param start The offset of the first byte to copy
+     * @param length The number of bytes to copy
+     * @return The number of bytes written, or -1 if the store does not hold the image
+     */
+    long copyRange(String agentId, String contentHash, long start, long length, OutputStream out);
+    
+    /**
+     * Stores the gzip compressed copy of an image next to its original
+     * @param data The compressed bytes, read exactly size bytes
+     * @param size The number of compressed bytes
+     */
+    void writeGzip(String agentId, String contentHash, InputStream data, long size);
+    
+    /**
+     * Copies the gzip compressed copy of an image to the given stream
+     * @return The number of bytes written, or -1 if the store holds no compressed copy
+     */
+    long copyGzipTo(String agentId, String contentHash, OutputStream out);
+    
+    /**
+     * Removes the bytes of a blob that is no longer referenced by any agent image, including any compressed copy
+     */
+    void delete(String contentHash);
+    
+    /**
+     * Locates the image as a local file, letting callers hand the copy over to the kernel
+     * @return The file, or empty if the store does not keep images as files
+     */
+    default Optional<Path> findFile(String agentId, String contentHash) {
+        return Optional.empty();
+    }
+    
+    /**
+     * Locates the gzip compressed copy of an image as a local file
+     * @return The file, or empty if there is no compressed copy or the store does not keep images as files
+     */
+    default Optional<Path> findGzipFile(String agentId, String contentHash) {
+        return Optional.empty();
+    }
+    
+    /**
+     * Reads the whole image into memory, for callers that need to decode it
+     * @return The image bytes, or empty if the store does not hold the image
+     */
+    default Optional<byte[]> readAllBytes(String agentId, String contentHash) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (copyTo(agentId, contentHash, out) < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(out.toByteArray());
+    }
+}
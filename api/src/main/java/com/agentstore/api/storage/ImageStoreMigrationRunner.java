@@ -0,0 +1,43 @@
+package com.agentstore.api.storage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Command line entry point for copying images between stores, e.g.
+ * <pre>java -jar api.jar --spring.main.web-application-type=none --migrate-images=database:filesystem</pre>
+ * The application exits once the migration is done, with a non-zero status if any image failed
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImageStoreMigrationRunner implements ApplicationRunner {
+    
+    public static final String OPTION = "migrate-images";
+    
+    private final ImageStoreMigrationService migrationService;
+    private final ConfigurableApplicationContext context;
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        List<String> values = args.getOptionValues(OPTION);
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+        
+        String[] stores = values.get(0).split(":");
+        if (stores.length != 2) {
+            throw new IllegalArgumentException("Expected --" + OPTION + "=<source>:<target>, got " + values.get(0));
+        }
+        
+        int failed = migrationService.migrate(stores[0].trim(), stores[1].trim());
+        System.exit(SpringApplication.exit(context, () -> failed == 0 ? 0 : 1));
+    }
+}
@@ -0,0 +1,152 @@
+package com.agentstore.api.storage;
+
+import com.agentstore.api.repository.AgentImageRepository;
+import com.agentstore.api.repository.projection.AgentImageMetadata;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copies stored images from one image store to another
+ */
+@Slf4j
+@Service
+public class ImageStoreMigrationService {
+    
+    private final AgentImageRepository agentImageRepository;
+    private final Map<String, ImageStore> stores;
+    
+    public ImageStoreMigrationService(AgentImageRepository agentImageRepository,
+                                      DatabaseImageStore databaseImageStore,
+                                      FileSystemImageStore fileSystemImageStore) {
+        this.agentImageRepository = agentImageRepository;
+        this.stores = Map.of(databaseImageStore.getName(), databaseImageStore,
+                fileSystemImageStore.getName(), fileSystemImageStore);
+    }
+    
+    /**
+     * Copy every image the source store holds and the target store does not, along with its gzip copy
+     * Images are copied one at a time through a temporary file, so memory use does not grow with image size
+     * @return The number of images that could not be copied
+     */
+    public int migrate(String from, String to) {
+        ImageStore source = getStore(from);
+        ImageStore target = getStore(to);
+        if (source == target) {
+            throw new IllegalArgumentException("Source and target image stores are the same: " + from);
+        }
+        
+        List<AgentImageMetadata> images = agentImageRepository.findAllMetadataBy();
+        int copied = 0;
+        int skipped = 0;
+        int failed = 0;
+        
+        for (AgentImageMetadata image : images) {
+            if (target.exists(image.getAgentId(), image.getContentHash())) {
+                skipped++;
+                continue;
+            }
+            
+            try {
+                if (copy(image, source, target)) {
+                    copied++;
+                } else {
+                    log.warn("Image of agent {} is missing from the {} store", image.getAgentId(), from);
+                    failed++;
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to migrate image of agent {}", image.getAgentId(), e);
+                failed++;
+            }
+        }
+        
+        log.info("Migrated images from {} to {} store: {} copied, {} already present, {} failed",
+                from, to, copied, skipped, failed);
+        return failed;
+    }
+    
+    private boolean copy(AgentImageMetadata image, ImageStore source, ImageStore target) {
+        Path temp = null;
+        try {
+            temp = Files.createTempFile("image-migration-", ".tmp");
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            
+            long size;
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                size = source.copyTo(image.getAgentId(), image.getContentHash(), out);
+            }
+            if (size < 0) {
+                return false;
+            }
+            if (!image.getContentHash().equals(HexFormat.of().formatHex(digest.digest()))) {
+                throw new IllegalStateException("Stored bytes do not match the content hash");
+            }
+            
+            try (InputStream in = Files.newInputStream(temp)) {
+                target.write(image.getAgentId(), image.getContentHash(), in, size);
+            }
+            if (image.getGzipSizeBytes() != null) {
+                copyGzip(image, source, target);
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+    
+    private void copyGzip(AgentImageMetadata image, ImageStore source, ImageStore target) throws IOException {
+        Path temp = Files.createTempFile("image-migration-", ".gz");
+        try {
+            long size;
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                size = source.copyGzipTo(image.getAgentId(), image.getContentHash(), out);
+            }
+            if (size < 0) {
+                log.warn("Gzip copy of the image of agent {} is missing from the source store", image.getAgentId());
+                return;
+            }
+            
+            try (InputStream in = Files.newInputStream(temp)) {
+                target.writeGzip(image.getAgentId(), image.getContentHash(), in, size);
+            }
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+    
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete temporary file {}", file, e);
+        }
+    }
+    
+    private ImageStore getStore(String name) {
+        ImageStore store = stores.get(name);
+        if (store == null) {
+            throw new IllegalArgumentException("Unknown image store: " + name + ", expected one of " + stores.keySet());
+        }
+        return store;
+    }
+}
@@ -3,7 +3,11 @@ package com.agentstore.api.util;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.util.StringUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
+import java.util.HexFormat;
 import java.util.Set;
 
 @Slf4j
@@ -20,9 +24,27 @@ public class ImageUtil {
             "image/svg+xml"
     );
     
+    // Stored formats that are not compressed already, so a gzip copy is worth keeping
+    private static final Set<String> COMPRESSIBLE_MIME_TYPES = Set.of(
+            "image/svg+xml",
+            "image/bmp"
+    );
+    
     // Maximum image size in bytes (16MB as base64)
     private static final long MAX_IMAGE_SIZE_BYTES = 16 * 1024 * 1024;
     
+    // Maximum size of a raw image upload, the decoded equivalent of MAX_IMAGE_SIZE_BYTES
+    public static final long MAX_RAW_IMAGE_SIZE_BYTES = MAX_IMAGE_SIZE_BYTES / 4 * 3;
+    
+    private static final String DATA_URL_PREFIX = "data:";
+    private static final String BASE64_SEPARATOR = ";base64,";
+    
+    // Number of decoded leading bytes inspected to identify the image format; room for the comments and DOCTYPE
+    // that editors write before the root element of an SVG
+    public static final int SNIFF_HEADER_BYTES = 8192;
+    
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    
     /**
      * Validates a base64 encoded image
      * @param base64Data The base64 encoded image data
@@ -30,7 +52,22 @@ public class ImageUtil {
      * @return true if valid, false otherwise
      */
     public static boolean isValidImage(String base64Data, String mimeType) {
-        if (!StringUtils.hasText(base64Data) || !StringUtils.hasText(mimeType)) {
+        if (!StringUtils.hasText(base64Data)) {
+            return false;
+        }
+        return isValidImage(base64Data, 0, base64Data.length(), mimeType);
+    }
+    
+    /**
+     * Validates a base64 encoded image held in a region of a larger string, without copying or decoding it
+     * @param text The text containing the base64 data
+     * @param start Start index of the base64 data (inclusive)
+     * @param end End index of the base64 data (exclusive)
+     * @param mimeType The declared MIME type of the image
+     * @return true if the data is well-formed base64 of an image matching the declared type
+     */
+    private static boolean isValidImage(String text, int start, int end, String mimeType) {
+        if (start >= end || !StringUtils.hasText(mimeType)) {
             return false;
         }
         
@@ -41,19 +78,217 @@ public class ImageUtil {
         }
         
         // Check size
-        if (base64Data.length() > MAX_IMAGE_SIZE_BYTES) {
-            log.warn("Image size too large: {} bytes", base64Data.length());
+        if (end - start > MAX_IMAGE_SIZE_BYTES) {
+            log.warn("Image size too large: {} bytes", end - start);
             return false;
         }
         
         // Validate base64 format
-        try {
-            Base64.getDecoder().decode(base64Data);
-            return true;
-        } catch (IllegalArgumentException e) {
-            log.warn("Invalid base64 data", e);
+        if (!isValidBase64(text, start, end)) {
+            log.warn("Invalid base64 data");
+            return false;
+        }
+        
+        // Check that the content really is the declared format
+        String detectedType = detectMimeType(decodeHeader(text, start, end));
+        if (!isSameImageType(mimeType, detectedType)) {
+            log.warn("Image content ({}) does not match declared MIME type {}", detectedType, mimeType);
+            return false;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Checks base64 alphabet and padding in a single pass, without allocating
+     * Accepts the same input as {@link Base64#getDecoder()}: no whitespace, optional padding
+     * @param text The text containing the base64 data
+     * @param start Start index of the base64 data (inclusive)
+     * @param end End index of the base64 data (exclusive)
+     * @return true if the region decodes with the basic base64 decoder
+     */
+    public static boolean isValidBase64(CharSequence text, int start, int end) {
+        int padding = 0;
+        
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '=') {
+                padding++;
+                if (padding > 2) {
+                    return false;
+                }
+            } else if (padding > 0 || !isBase64Char(c)) {
+                // Data characters are not allowed after padding
+                return false;
+            }
+        }
+        
+        int dataLength = end - start - padding;
+        if (padding > 0) {
+            return (end - start) % 4 == 0;
+        }
+        // A single trailing character cannot encode a whole byte
+        return dataLength % 4 != 1;
+    }
+    
+    private static boolean isBase64Char(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '+' || c == '/';
+    }
+    
+    /**
+     * Decodes only the leading bytes of base64 data, enough to identify the image format
+     */
+    private static byte[] decodeHeader(String text, int start, int end) {
+        // 4 base64 characters encode 3 bytes
+        int headerChars = Math.min(end - start, SNIFF_HEADER_BYTES / 3 * 4);
+        if (headerChars < end - start) {
+            headerChars -= headerChars % 4;
+        }
+        return Base64.getDecoder().decode(text.substring(start, start + headerChars));
+    }
+    
+    /**
+     * Identifies the image format from its leading bytes
+     * @param header The first bytes of the image (up to {@value #SNIFF_HEADER_BYTES} are inspected)
+     * @return The canonical MIME type, or null if the format is not recognised
+     */
+    public static String detectMimeType(byte[] header) {
+        return detectMimeType(header, header.length);
+    }
+    
+    /**
+     * Identifies the image format from the first length bytes of the given buffer
+     * @return The canonical MIME type, or null if the format is not recognised
+     */
+    public static String detectMimeType(byte[] header, int length) {
+        if (startsWith(header, length, PNG_SIGNATURE)) {
+            return "image/png";
+        }
+        if (length >= 3 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8 && (header[2] & 0xFF) == 0xFF) {
+            return "image/jpeg";
+        }
+        if (startsWith(header, length, "GIF87a".getBytes(StandardCharsets.US_ASCII))
+                || startsWith(header, length, "GIF89a".getBytes(StandardCharsets.US_ASCII))) {
+            return "image/gif";
+        }
+        if (length >= 12 && startsWith(header, length, "RIFF".getBytes(StandardCharsets.US_ASCII))
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+            return "image/webp";
+        }
+        if (startsWith(header, length, "BM".getBytes(StandardCharsets.US_ASCII))) {
+            return "image/bmp";
+        }
+        if (looksLikeSvg(header, length)) {
+            return "image/svg+xml";
+        }
+        return null;
+    }
+    
+    private static boolean startsWith(byte[] data, int length, byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * SVG is text: after an optional BOM, the XML declaration, processing instructions, comments, a DOCTYPE and
+     * whitespace, the root element must be svg
+     * The root element has to start within the first {@value #SNIFF_HEADER_BYTES} bytes; a longer prolog is not
+     * recognised.
+     */
+    private static boolean looksLikeSvg(byte[] header, int length) {
+        int limit = Math.min(length, SNIFF_HEADER_BYTES);
+        int start = 0;
+        if (limit >= 3 && (header[0] & 0xFF) == 0xEF && (header[1] & 0xFF) == 0xBB && (header[2] & 0xFF) == 0xBF) {
+            start = 3;
+        }
+        
+        String text = new String(header, start, limit - start, StandardCharsets.ISO_8859_1);
+        int i = 0;
+        while (i >= 0) {
+            while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            if (text.startsWith("<?", i)) {
+                i = skipPast(text, i, "?>");
+            } else if (text.startsWith("<!--", i)) {
+                i = skipPast(text, i, "-->");
+            } else if (text.startsWith("<!DOCTYPE", i)) {
+                i = skipDoctype(text, i);
+            } else {
+                break;
+            }
+        }
+        if (i < 0 || !text.startsWith("<svg", i) || i + 4 >= text.length()) {
             return false;
         }
+        
+        char next = text.charAt(i + 4);
+        return Character.isWhitespace(next) || next == '>' || next == '/';
+    }
+    
+    /**
+     * @return The index just after the first end marker at or after from, or -1 if it is not in the text
+     */
+    private static int skipPast(String text, int from, String end) {
+        int index = text.indexOf(end, from);
+        return index < 0 ? -1 : index + end.length();
+    }
+    
+    /**
+     * Skip a DOCTYPE, whose internal subset in brackets may itself contain '>'
+     */
+    private static int skipDoctype(String text, int from) {
+        int close = text.indexOf('>', from);
+        int subset = text.indexOf('[', from);
+        if (subset >= 0 && (close < 0 || subset < close)) {
+            int subsetEnd = text.indexOf(']', subset);
+            if (subsetEnd < 0) {
+                return -1;
+            }
+            close = text.indexOf('>', subsetEnd);
+        }
+        return close < 0 ? -1 : close + 1;
+    }
+    
+    /**
+     * Resolves the MIME type of uploaded raw bytes
+     * @param declaredType The MIME type sent by the client, may be generic (application/octet-stream) or missing
+     * @param header The leading bytes of the image
+     * @return The MIME type to store
+     * @throws IllegalArgumentException if the content is not a supported image or does not match the declared type
+     */
+    public static String resolveUploadedMimeType(String declaredType, byte[] header) {
+        String detectedType = detectMimeType(header);
+        if (detectedType == null) {
+            throw new IllegalArgumentException("Invalid image data or unsupported image type");
+        }
+        
+        if (!StringUtils.hasText(declaredType) || !declaredType.toLowerCase().startsWith("image/")) {
+            return detectedType;
+        }
+        
+        if (!SUPPORTED_MIME_TYPES.contains(declaredType.toLowerCase()) || !isSameImageType(declaredType, detectedType)) {
+            throw new IllegalArgumentException("Image content does not match declared MIME type " + declaredType);
+        }
+        return detectedType;
+    }
+    
+    /**
+     * Compares a declared MIME type with a detected one, treating image/jpg as image/jpeg
+     */
+    private static boolean isSameImageType(String declaredType, String detectedType) {
+        if (detectedType == null) {
+            return false;
+        }
+        String declared = declaredType.toLowerCase();
+        return declared.equals(detectedType) || ("image/jpg".equals(declared) && "image/jpeg".equals(detectedType));
     }
     
     /**
@@ -62,28 +297,24 @@ public class ImageUtil {
      * @return Array with [mimeType, base64Data] or null if invalid
      */
     public static String[] parseDataUrl(String dataUrl) {
-        if (!StringUtils.hasText(dataUrl) || !dataUrl.startsWith("data:") || !dataUrl.contains(";base64,")) {
+        if (!StringUtils.hasText(dataUrl) || !dataUrl.startsWith(DATA_URL_PREFIX)) {
             return null;
         }
         
-        try {
-            String[] parts = dataUrl.split(";base64,");
-            if (parts.length != 2) {
-                return null;
-            }
-            
-            String mimeType = parts[0].substring(5); // Remove "data:" prefix
-            String base64Data = parts[1];
-            
-            if (isValidImage(base64Data, mimeType)) {
-                return new String[]{mimeType, base64Data};
-            }
-            
-            return null;
-        } catch (Exception e) {
-            log.error("Error parsing data URL", e);
+        int separator = dataUrl.indexOf(BASE64_SEPARATOR);
+        if (separator < 0 || dataUrl.indexOf(BASE64_SEPARATOR, separator + 1) >= 0) {
             return null;
         }
+        
+        String mimeType = dataUrl.substring(DATA_URL_PREFIX.length(), separator);
+        int dataStart = separator + BASE64_SEPARATOR.length();
+        
+        // Validate in place so the only copy made is the returned base64 string
+        if (isValidImage(dataUrl, dataStart, dataUrl.length(), mimeType)) {
+            return new String[]{mimeType, dataUrl.substring(dataStart)};
+        }
+        
+        return null;
     }
     
     /**
@@ -94,11 +325,45 @@ public class ImageUtil {
      */
     public static String createDataUrl(String mimeType, String base64Data) {
         if (isValidImage(base64Data, mimeType)) {
-            return String.format("data:%s;base64,%s", mimeType, base64Data);
+            return toDataUrl(mimeType, base64Data);
         }
         return null;
     }
     
+    /**
+     * Creates a data URL from an image that was already validated when it was stored
+     * Stored images are only written after validation, so reads never validate them again
+     * @param mimeType The MIME type
+     * @param base64Data The base64 encoded data
+     * @return The data URL
+     */
+    public static String toDataUrl(String mimeType, String base64Data) {
+        return DATA_URL_PREFIX + mimeType + BASE64_SEPARATOR + base64Data;
+    }
+    
+    /**
+     * Computes the content hash used to identify stored images
+     * @param data The raw image bytes
+     * @return The hex encoded SHA-256 digest of the data
+     */
+    public static String sha256Hex(byte[] data) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    
+    /**
+     * Checks whether images of a MIME type are worth storing gzip compressed
+     * @param mimeType The MIME type
+     * @return true for uncompressed formats such as SVG and BMP
+     */
+    public static boolean isCompressible(String mimeType) {
+        return mimeType != null && COMPRESSIBLE_MIME_TYPES.contains(mimeType.toLowerCase());
+    }
+    
     /**
      * Gets the file extension for a MIME type
      * @param mimeType The MIME type
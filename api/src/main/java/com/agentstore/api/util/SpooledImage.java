@@ -0,0 +1,102 @@
+package com.agentstore.api.util;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * An uploaded image copied to a temporary file through a fixed-size buffer
+ * The size limit is enforced while bytes arrive, and the content hash and leading bytes
+ * are captured on the way, so the upload is never held in memory
+ */
+@Getter
+public class SpooledImage implements AutoCloseable {
+    
+    private static final int BUFFER_SIZE = 8192;
+    private static final int HEADER_SIZE = ImageUtil.SNIFF_HEADER_BYTES;
+    
+    private final Path file;
+    private final long size;
+    private final String contentHash;
+    private final byte[] header;
+    
+    private SpooledImage(Path file, long size, String contentHash, byte[] header) {
+        this.file = file;
+        this.size = size;
+        this.contentHash = contentHash;
+        this.header = header;
+    }
+    
+    /**
+     * Copy a stream to a temporary file
+     * @param in The upload stream, read to the end but not closed
+     * @param maxBytes The maximum number of bytes accepted
+     * @return The spooled image, to be closed once stored
+     * @throws IllegalArgumentException if the stream is empty or longer than maxBytes
+     */
+    public static SpooledImage spool(InputStream in, long maxBytes) throws IOException {
+        Path file = Files.createTempFile("agent-image-", ".upload");
+        
+        try {
+            MessageDigest digest = sha256();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            byte[] header = new byte[HEADER_SIZE];
+            int headerLength = 0;
+            long size = 0;
+            
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(file), digest)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    size += read;
+                    if (size > maxBytes) {
+                        throw new IllegalArgumentException("Image size too large: more than "
+                                + ImageUtil.formatFileSize(maxBytes));
+                    }
+                    
+                    if (headerLength < HEADER_SIZE) {
+                        int copied = Math.min(read, HEADER_SIZE - headerLength);
+                        System.arraycopy(buffer, 0, header, headerLength, copied);
+                        headerLength += copied;
+                    }
+                    out.write(buffer, 0, read);
+                }
+            }
+            
+            if (size == 0) {
+                throw new IllegalArgumentException("Image is empty");
+            }
+            
+            return new SpooledImage(file, size, HexFormat.of().formatHex(digest.digest()),
+                    Arrays.copyOf(header, headerLength));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+    
+    public InputStream openStream() throws IOException {
+        return Files.newInputStream(file);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        Files.deleteIfExists(file);
+    }
+    
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+-- V10: Precompressed copies of compressible images
+-- SVG and BMP images shrink several times with gzip; the compressed copy is made once at upload
+-- and served to clients that accept it, so no CPU is spent compressing per request.
+
+ALTER TABLE image_blobs ADD COLUMN gzip_data BYTEA;
+ALTER TABLE image_blobs ADD COLUMN gzip_size_bytes BIGINT;
+
+COMMENT ON COLUMN image_blobs.gzip_data IS 'Gzip compressed image bytes, NULL when kept by the filesystem store or not worth compressing';
+COMMENT ON COLUMN image_blobs.gzip_size_bytes IS 'Size of the gzip compressed copy in bytes, NULL if there is none';
@@ -0,0 +1,5 @@
+-- V11: Index user_agent_access by agent
+-- The primary key (user_id, agent_id) only serves lookups that start from a user. Finding the users of an agent,
+-- including the cascade when an agent is deleted, scanned the whole table.
+
+CREATE INDEX idx_user_agent_access_agent_id ON user_agent_access(agent_id);
@@ -0,0 +1,5 @@
+-- V12: Composite index for keyset pagination of agents
+-- Listings are ordered by (created_at, id); id breaks ties between agents created in the same instant.
+-- Pages seek past the last (created_at, id) seen instead of skipping an offset, which this index serves directly.
+
+CREATE INDEX idx_agents_created_at_id ON agents(created_at, id);
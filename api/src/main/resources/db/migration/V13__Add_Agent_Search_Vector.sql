@@ -0,0 +1,13 @@
+-- V13: Ranked full-text search over agent title and description
+-- ILIKE '%term%' can not use idx_agents_title and never looked at descriptions. A generated tsvector
+-- keeps the search document in sync with every write, and a GIN index finds matches without scanning agents.
+-- Title words weigh more than description words when ranking.
+
+ALTER TABLE agents ADD COLUMN search_vector TSVECTOR GENERATED ALWAYS AS (
+    setweight(to_tsvector('english', coalesce(title, '')), 'A') ||
+    setweight(to_tsvector('english', coalesce(description, '')), 'B')
+) STORED;
+
+CREATE INDEX idx_agents_search ON agents USING GIN (search_vector);
+
+COMMENT ON COLUMN agents.search_vector IS 'Full-text search document of title (weight A) and description (weight B)';
@@ -0,0 +1,110 @@
+-- V14: Change log behind GET /agents/changes
+-- Clients that keep a copy of the catalog catch up on what changed since the version they last saw,
+-- instead of downloading every agent again. Triggers append the rows in the same transaction as the change,
+-- so JPA writes, bulk JDBC upserts and ON DELETE CASCADE are all recorded.
+-- Writers append changes without a version and without any lock, so they never wait on each other for the log.
+-- sequence_agent_changes stamps committed changes with increasing versions afterwards: it only sees committed
+-- rows and runs one call at a time, so a reader that sees version n never misses a version below n committed later.
+--
+-- Lock order of writers, since logging a change takes none: the agents row, then the image blob advisory lock,
+-- then image_blobs and agent_images rows. The sequencer lock is only taken by sequence_agent_changes, whose
+-- transaction touches nothing but agent_changes rows that have no version yet.
+
+CREATE SEQUENCE agent_changes_version_seq;
+
+CREATE TABLE agent_changes (
+    id BIGSERIAL PRIMARY KEY,
+    version BIGINT,
+    change_type VARCHAR(20) NOT NULL,
+    agent_id VARCHAR(50),
+    user_id BIGINT,
+    changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE UNIQUE INDEX idx_agent_changes_version ON agent_changes(version);
+CREATE INDEX idx_agent_changes_pending ON agent_changes(id) WHERE version IS NULL;
+CREATE INDEX idx_agent_changes_changed_at ON agent_changes(changed_at);
+
+CREATE FUNCTION log_agent_change(p_change_type VARCHAR, p_agent_id VARCHAR, p_user_id BIGINT) RETURNS VOID AS $$
+BEGIN
+    INSERT INTO agent_changes (change_type, agent_id, user_id) VALUES (p_change_type, p_agent_id, p_user_id);
+END;
+$$ LANGUAGE plpgsql;
+
+-- Versions are drawn in log order, which follows commit order for changes to the same rows
+CREATE FUNCTION sequence_agent_changes(p_limit INT) RETURNS SETOF agent_changes AS $$
+BEGIN
+    -- Held until the caller commits, so a later call always draws higher versions than the ones it can see
+    PERFORM pg_advisory_xact_lock(hashtext('agent_changes_sequencer'));
+    RETURN QUERY
+    UPDATE agent_changes c SET version = p.version
+    FROM (SELECT pending.id, nextval('agent_changes_version_seq') AS version
+          FROM (SELECT id FROM agent_changes WHERE version IS NULL ORDER BY id LIMIT p_limit) pending) p
+    WHERE c.id = p.id
+    RETURNING c.*;
+END;
+$$ LANGUAGE plpgsql;
+
+-- An agent changes whenever its updated_at moves; GET /agents/stream tells created agents from updated ones
+CREATE FUNCTION agents_log_change() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        PERFORM log_agent_change('DELETE', OLD.id, NULL);
+    ELSIF TG_OP = 'INSERT' THEN
+        PERFORM log_agent_change('CREATE', NEW.id, NULL);
+    ELSE
+        PERFORM log_agent_change('UPSERT', NEW.id, NULL);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER agents_change_log_insert_delete AFTER INSERT OR DELETE ON agents
+    FOR EACH ROW EXECUTE FUNCTION agents_log_change();
+
+CREATE TRIGGER agents_change_log_update AFTER UPDATE ON agents
+    FOR EACH ROW WHEN (OLD.updated_at IS DISTINCT FROM NEW.updated_at) EXECUTE FUNCTION agents_log_change();
+
+-- The listing shows the image URL, status and placeholder, so image changes change the agent
+CREATE FUNCTION agent_images_log_change() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM log_agent_change('IMAGE', COALESCE(NEW.agent_id, OLD.agent_id), NULL);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER agent_images_change_log AFTER INSERT OR DELETE
+    OR UPDATE OF content_hash, mime_type, variant_status, placeholder ON agent_images
+    FOR EACH ROW EXECUTE FUNCTION agent_images_log_change();
+
+CREATE FUNCTION user_agent_access_log_change() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        PERFORM log_agent_change('REVOKE', OLD.agent_id, OLD.user_id);
+    ELSE
+        PERFORM log_agent_change('GRANT', NEW.agent_id, NEW.user_id);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER user_agent_access_change_log AFTER INSERT OR DELETE ON user_agent_access
+    FOR EACH ROW EXECUTE FUNCTION user_agent_access_log_change();
+
+-- Admin and VIP users see every agent, so a role change may change the whole catalog of a user
+CREATE FUNCTION user_roles_log_change() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM log_agent_change('ROLES', NULL, COALESCE(NEW.user_id, OLD.user_id));
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER user_roles_change_log AFTER INSERT OR DELETE ON user_roles
+    FOR EACH ROW EXECUTE FUNCTION user_roles_log_change();
+
+COMMENT ON TABLE agent_changes IS 'Append-only log of agent, image, access and role changes, pruned after the retention period';
+COMMENT ON COLUMN agent_changes.id IS 'Order in which changes were logged, including changes that have not committed yet';
+COMMENT ON COLUMN agent_changes.version IS 'Catalog version reached by this change, assigned after it commits; clients pass the last one they saw as since';
+COMMENT ON COLUMN agent_changes.change_type IS 'CREATE, UPSERT, DELETE, IMAGE, GRANT, REVOKE or ROLES';
+COMMENT ON COLUMN agent_changes.user_id IS 'User whose access changed, NULL for changes every user may see';
+COMMENT ON FUNCTION sequence_agent_changes(INT) IS 'Assigns versions to at most p_limit committed changes that have none and returns them';
@@ -0,0 +1,36 @@
+-- V15: Log user_agent_access changes once per statement
+-- POST /access/bulk writes up to millions of grants in a few statements. The row-level trigger of V14 ran a
+-- function call and a single-row insert for each of them; statement-level triggers read the changed rows from
+-- transition tables and append them to the log with one insert per statement. Like every change log writer they
+-- take no lock, so a large bulk change never makes other writers wait for its commit.
+
+DROP TRIGGER user_agent_access_change_log ON user_agent_access;
+DROP FUNCTION user_agent_access_log_change();
+
+CREATE FUNCTION user_agent_access_log_grants() RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO agent_changes (change_type, agent_id, user_id)
+    SELECT 'GRANT', agent_id, user_id FROM granted;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION user_agent_access_log_revokes() RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO agent_changes (change_type, agent_id, user_id)
+    SELECT 'REVOKE', agent_id, user_id FROM revoked;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Transition tables require one trigger per event
+CREATE TRIGGER user_agent_access_grant_log AFTER INSERT ON user_agent_access
+    REFERENCING NEW TABLE AS granted
+    FOR EACH STATEMENT EXECUTE FUNCTION user_agent_access_log_grants();
+
+CREATE TRIGGER user_agent_access_revoke_log AFTER DELETE ON user_agent_access
+    REFERENCING OLD TABLE AS revoked
+    FOR EACH STATEMENT EXECUTE FUNCTION user_agent_access_log_revokes();
+
+COMMENT ON FUNCTION user_agent_access_log_grants() IS 'Appends one GRANT change per inserted user_agent_access row';
+COMMENT ON FUNCTION user_agent_access_log_revokes() IS 'Appends one REVOKE change per deleted user_agent_access row';
@@ -0,0 +1,9 @@
+-- V16: Indexes behind GET /users/page
+-- The user directory is ordered by (created_at, id) and pages seek past the last row seen, like the agent listing.
+-- The enabled filter seeks through its own composite index, so a page of disabled users never scans enabled ones.
+-- The role filter starts from the holders of a role when that role is rare; the primary key (user_id, role_id)
+-- only serves lookups that start from a user. The agent filter is served by idx_user_agent_access_agent_id.
+
+CREATE INDEX idx_users_created_at_id ON users(created_at, id);
+CREATE INDEX idx_users_enabled_created_at_id ON users(enabled, created_at, id);
+CREATE INDEX idx_user_roles_role_id ON user_roles(role_id, user_id);
@@ -0,0 +1,7 @@
+-- V17: Uncompressed out-of-line storage for image bytes
+-- Images are read in substring windows. On an uncompressed value the server fetches only the TOAST chunks of a
+-- window; on a compressed one it has to decompress everything before it. Image formats are compressed already and
+-- the gzip copy is gzip, so EXTERNAL storage costs next to no space. Rows written before this keep their storage.
+
+ALTER TABLE image_blobs ALTER COLUMN data SET STORAGE EXTERNAL;
+ALTER TABLE image_blobs ALTER COLUMN gzip_data SET STORAGE EXTERNAL;
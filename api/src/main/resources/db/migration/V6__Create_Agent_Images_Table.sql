@@ -0,0 +1,42 @@
+-- V6: Move agent images out of agents.image_data into a dedicated binary table
+-- Images were stored as base64 TEXT, which costs ~33% extra storage and forces a decode on every read.
+-- The new table keeps the raw bytes along with the metadata needed to serve them without touching the payload.
+
+CREATE TABLE agent_images (
+    agent_id VARCHAR(50) PRIMARY KEY,
+    data BYTEA NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    mime_type VARCHAR(50) NOT NULL,
+    content_hash VARCHAR(64) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (agent_id) REFERENCES agents(id) ON DELETE CASCADE
+);
+
+-- Convert existing base64 images to raw bytes, decoding each one exactly once
+INSERT INTO agent_images (agent_id, data, size_bytes, mime_type, content_hash, created_at, updated_at)
+SELECT decoded.id,
+       decoded.bytes,
+       octet_length(decoded.bytes),
+       decoded.mime_type,
+       encode(sha256(decoded.bytes), 'hex'),
+       decoded.created_at,
+       decoded.updated_at
+FROM (
+    SELECT id, mime_type, created_at, updated_at, decode(image_data, 'base64') AS bytes
+    FROM agents
+    WHERE image_data IS NOT NULL AND image_data != '' AND mime_type IS NOT NULL
+) decoded;
+
+-- The image columns on agents are now served from agent_images
+DROP INDEX IF EXISTS idx_agents_has_image;
+DROP INDEX IF EXISTS idx_agents_mime_type;
+ALTER TABLE agents DROP COLUMN image_data;
+ALTER TABLE agents DROP COLUMN mime_type;
+
+CREATE INDEX idx_agent_images_content_hash ON agent_images(content_hash);
+
+COMMENT ON TABLE agent_images IS 'Raw agent image bytes, one row per agent';
+COMMENT ON COLUMN agent_images.data IS 'Raw (not base64 encoded) image bytes';
+COMMENT ON COLUMN agent_images.size_bytes IS 'Size of the raw image in bytes';
+COMMENT ON COLUMN agent_images.content_hash IS 'Hex encoded SHA-256 of the raw image bytes';
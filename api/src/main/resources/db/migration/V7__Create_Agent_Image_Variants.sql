@@ -0,0 +1,24 @@
+-- V7: Downscaled image variants and inline placeholders for agent images
+-- Variants are generated in the background after each upload; the status column tells clients when they are ready.
+
+ALTER TABLE agent_images ADD COLUMN variant_status VARCHAR(20) NOT NULL DEFAULT 'PENDING';
+ALTER TABLE agent_images ADD COLUMN placeholder TEXT;
+
+CREATE TABLE agent_image_variants (
+    agent_id VARCHAR(50) NOT NULL,
+    size_px INTEGER NOT NULL,
+    data BYTEA NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    mime_type VARCHAR(50) NOT NULL,
+    content_hash VARCHAR(64) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (agent_id, size_px),
+    FOREIGN KEY (agent_id) REFERENCES agent_images(agent_id) ON DELETE CASCADE
+);
+
+-- Lets the startup sweep find images whose variants still have to be generated
+CREATE INDEX idx_agent_images_pending_variants ON agent_images(agent_id) WHERE variant_status IN ('PENDING', 'PROCESSING');
+
+COMMENT ON COLUMN agent_images.variant_status IS 'State of the variant pipeline: PENDING, PROCESSING, READY, FAILED or UNSUPPORTED';
+COMMENT ON COLUMN agent_images.placeholder IS 'Tiny blurred preview of the image as a data URL';
+COMMENT ON TABLE agent_image_variants IS 'Downscaled copies of agent images, bounded to size_px on their longest side';
@@ -0,0 +1,7 @@
+-- V8: Allow image bytes to live outside the database
+-- With the filesystem image store, agent_images only keeps the metadata and the bytes are stored
+-- on disk under their content hash, so the data column is left NULL.
+
+ALTER TABLE agent_images ALTER COLUMN data DROP NOT NULL;
+
+COMMENT ON COLUMN agent_images.data IS 'Raw (not base64 encoded) image bytes, NULL when the image is kept by the filesystem store';
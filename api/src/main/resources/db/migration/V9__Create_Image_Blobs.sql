@@ -0,0 +1,31 @@
+-- V9: Store each distinct image once, shared by every agent that uses it
+-- Agents often reuse the same logo; blobs are keyed by SHA-256 and reference counted,
+-- so a blob is only removed once no agent image points at it any more.
+
+CREATE TABLE image_blobs (
+    content_hash VARCHAR(64) PRIMARY KEY,
+    data BYTEA,
+    size_bytes BIGINT NOT NULL,
+    ref_count INTEGER NOT NULL CHECK (ref_count >= 0),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- One blob per distinct hash, preferring a row that still carries the bytes
+INSERT INTO image_blobs (content_hash, data, size_bytes, ref_count, created_at)
+SELECT DISTINCT ON (content_hash)
+       content_hash,
+       data,
+       size_bytes,
+       count(*) OVER (PARTITION BY content_hash),
+       created_at
+FROM agent_images
+ORDER BY content_hash, data IS NULL, created_at;
+
+-- Per-agent rows now only reference the shared bytes
+ALTER TABLE agent_images DROP COLUMN data;
+ALTER TABLE agent_images ADD CONSTRAINT fk_agent_images_blob
+    FOREIGN KEY (content_hash) REFERENCES image_blobs(content_hash);
+
+COMMENT ON TABLE image_blobs IS 'Distinct image payloads, addressed by content hash and shared between agents';
+COMMENT ON COLUMN image_blobs.data IS 'Raw image bytes, NULL when the image is kept by the filesystem store';
+COMMENT ON COLUMN image_blobs.ref_count IS 'Number of agent_images rows referencing this blob; the blob is deleted when it reaches zero';
@@ -0,0 +1,71 @@
+package com.agentstore.api.controller;
+
+import com.agentstore.api.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@AutoConfigureMockMvc
+class ImageControllerTest extends PostgresIntegrationTest {
+    
+    private static final byte[] ORIGINAL = "original image bytes".getBytes();
+    private static final byte[] VARIANT = "variant".getBytes();
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @BeforeEach
+    void insertImage() {
+        // Written directly, so no background variant generation runs during the test
+        jdbcTemplate.update("INSERT INTO agents (id, title, description) VALUES ('image-variant', 'V', 'V') " +
+                "ON CONFLICT DO NOTHING");
+        jdbcTemplate.update("INSERT INTO image_blobs (content_hash, data, size_bytes, ref_count) " +
+                "VALUES ('image-variant-hash', ?, ?, 1) ON CONFLICT DO NOTHING", ORIGINAL, ORIGINAL.length);
+        jdbcTemplate.update("INSERT INTO agent_images (agent_id, size_bytes, mime_type, content_hash, variant_status) " +
+                "VALUES ('image-variant', ?, 'image/png', 'image-variant-hash', 'READY') ON CONFLICT DO NOTHING",
+                ORIGINAL.length);
+        jdbcTemplate.update("DELETE FROM agent_image_variants WHERE agent_id = 'image-variant'");
+    }
+    
+    @Test
+    void variantIsSentWithItsOwnLength() throws Exception {
+        jdbcTemplate.update("INSERT INTO agent_image_variants (agent_id, size_px, data, size_bytes, mime_type, " +
+                "content_hash) VALUES ('image-variant', 64, ?, ?, 'image/webp', 'image-variant-64')",
+                VARIANT, VARIANT.length);
+        
+        MockHttpServletResponse response = getImage();
+        
+        assertThat(response.getContentType()).isEqualTo("image/webp");
+        assertThat(response.getContentLengthLong()).isEqualTo(VARIANT.length);
+        assertThat(response.getContentAsByteArray()).isEqualTo(VARIANT);
+    }
+    
+    @Test
+    void missingVariantFallsBackToTheOriginal() throws Exception {
+        MockHttpServletResponse response = getImage();
+        
+        assertThat(response.getContentType()).isEqualTo("image/png");
+        assertThat(response.getContentLengthLong()).isEqualTo(ORIGINAL.length);
+        assertThat(response.getContentAsByteArray()).isEqualTo(ORIGINAL);
+    }
+    
+    private MockHttpServletResponse getImage() throws Exception {
+        authenticateAs(1L, "ROLE_ADMIN");
+        MockHttpServletResponse response = mockMvc.perform(get("/images/agents/image-variant").param("size", "64")
+                        .with(authentication(SecurityContextHolder.getContext().getAuthentication())))
+                .andReturn()
+                .getResponse();
+        SecurityContextHolder.clearContext();
+        
+        assertThat(response.getStatus()).isEqualTo(200);
+        return response;
+    }
+}
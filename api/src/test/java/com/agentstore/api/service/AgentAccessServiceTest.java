@@ -0,0 +1,62 @@
+package com.agentstore.api.service;
+
+import com.agentstore.api.dto.AccessBulkAction;
+import com.agentstore.api.dto.AccessBulkRequest;
+import com.agentstore.api.dto.AccessBulkResult;
+import com.agentstore.api.event.AgentAccessBulkChangedEvent;
+import com.agentstore.api.event.AgentAccessChangedEvent;
+import com.agentstore.api.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RecordApplicationEvents
+class AgentAccessServiceTest extends PostgresIntegrationTest {
+    
+    @Autowired
+    private AgentAccessService agentAccessService;
+    
+    @Autowired
+    private AgentAccessIndex agentAccessIndex;
+    
+    @Autowired
+    private ApplicationEvents applicationEvents;
+    
+    @Test
+    void bulkChangesPublishOneEventPerSlice() {
+        // Three slices of at most 500 users
+        List<Long> userIds = insertUsers("access-bulk", 1_200);
+        jdbcTemplate.update("INSERT INTO agents (id, title, description) VALUES " +
+                "('access-bulk-1', 'A', 'A'), ('access-bulk-2', 'B', 'B')");
+        
+        AccessBulkResult granted = agentAccessService.applyBulk(request(AccessBulkAction.GRANT, userIds));
+        
+        assertThat(granted.getChanged()).isEqualTo(2_400);
+        assertThat(applicationEvents.stream(AgentAccessBulkChangedEvent.class)).hasSize(3);
+        assertThat(applicationEvents.stream(AgentAccessChangedEvent.class)).isEmpty();
+        assertThat(agentAccessIndex.hasAccess(userIds.get(0), "access-bulk-1")).isTrue();
+        assertThat(agentAccessIndex.hasAccess(userIds.get(1_199), "access-bulk-2")).isTrue();
+        
+        // Only the last slice still has grants to revoke
+        agentAccessService.applyBulk(request(AccessBulkAction.REVOKE, userIds.subList(0, 1_000)));
+        applicationEvents.clear();
+        AccessBulkResult revoked = agentAccessService.applyBulk(request(AccessBulkAction.REVOKE, userIds));
+        
+        assertThat(revoked.getChanged()).isEqualTo(400);
+        assertThat(applicationEvents.stream(AgentAccessBulkChangedEvent.class)).hasSize(1);
+        assertThat(agentAccessIndex.hasAccess(userIds.get(1_199), "access-bulk-2")).isFalse();
+    }
+    
+    private static AccessBulkRequest request(AccessBulkAction action, List<Long> userIds) {
+        return AccessBulkRequest.builder()
+                .action(action)
+                .userIds(userIds)
+                .agentIds(List.of("access-bulk-1", "access-bulk-2"))
+                .build();
+    }
+}
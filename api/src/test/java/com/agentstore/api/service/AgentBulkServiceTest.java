@@ -0,0 +1,52 @@
+package com.agentstore.api.service;
+
+import com.agentstore.api.dto.BulkImportResult;
+import com.agentstore.api.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AgentBulkServiceTest extends PostgresIntegrationTest {
+    
+    private static final String EXPORT = """
+            {"id":"bulk-a","title":"Bulk A","description":"First","linkUrl":"http://a.example","port":"8001"}
+            {"id":"bulk-b","title":"Bulk B","description":"Second","linkUrl":null,"port":null}
+            """;
+    
+    @Autowired
+    private AgentBulkService agentBulkService;
+    
+    @Test
+    void reimportingAnUnchangedExportWritesNothing() throws IOException {
+        agentBulkService.importAgents(new StringReader(EXPORT));
+        long logged = countChanges();
+        
+        BulkImportResult result = agentBulkService.importAgents(new StringReader(EXPORT));
+        
+        assertThat(result.getUpserted()).isZero();
+        assertThat(result.getUnchanged()).isEqualTo(2);
+        assertThat(countChanges()).isEqualTo(logged);
+    }
+    
+    @Test
+    void onlyChangedAgentsAreWritten() throws IOException {
+        agentBulkService.importAgents(new StringReader(EXPORT));
+        long logged = countChanges();
+        
+        BulkImportResult result = agentBulkService.importAgents(new StringReader(
+                EXPORT.replace("\"port\":null", "\"port\":\"8002\"")));
+        
+        assertThat(result.getUpserted()).isEqualTo(1);
+        assertThat(result.getUnchanged()).isEqualTo(1);
+        assertThat(countChanges()).isEqualTo(logged + 1);
+    }
+    
+    private long countChanges() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM agent_changes WHERE agent_id LIKE 'bulk-%'",
+                Long.class);
+    }
+}
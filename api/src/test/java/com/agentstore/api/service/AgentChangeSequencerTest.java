@@ -0,0 +1,103 @@
+package com.agentstore.api.service;
+
+import com.agentstore.api.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class AgentChangeSequencerTest extends PostgresIntegrationTest {
+    
+    @Autowired
+    private AgentChangeSequencer agentChangeSequencer;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @BeforeEach
+    void createAgents() {
+        jdbcTemplate.update("INSERT INTO agents (id, title, description) VALUES ('slow-writer', 'Slow', 'Slow'), " +
+                "('fast-writer', 'Fast', 'Fast') ON CONFLICT DO NOTHING");
+        agentChangeSequencer.sequencePending();
+    }
+    
+    @Test
+    void writerDoesNotWaitForAnotherWritersCommitAndStillGetsTheHigherVersion() throws Exception {
+        CountDownLatch slowWriterLogged = new CountDownLatch(1);
+        CountDownLatch slowWriterMayCommit = new CountDownLatch(1);
+        CompletableFuture<Void> slowWriter = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(
+                status -> {
+                    touch("slow-writer");
+                    slowWriterLogged.countDown();
+                    await(slowWriterMayCommit);
+                }));
+        assertThat(slowWriterLogged.await(10, TimeUnit.SECONDS)).isTrue();
+        
+        // Used to block on the global change log lock until the slow writer committed
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> touch("fast-writer"));
+        agentChangeSequencer.sequencePending();
+        Long fastVersion = latestVersionOf("fast-writer");
+        assertThat(fastVersion).isNotNull();
+        
+        slowWriterMayCommit.countDown();
+        slowWriter.get(10, TimeUnit.SECONDS);
+        agentChangeSequencer.sequencePending();
+        
+        // Logged first but committed last: a client that synced up to the fast change must still get it
+        assertThat(latestVersionOf("slow-writer")).isGreaterThan(fastVersion);
+    }
+    
+    @Test
+    void uncommittedBulkGrantDoesNotBlockOtherGrants() throws Exception {
+        List<Long> userIds = insertUsers("sequencer-grantee", 100);
+        CountDownLatch grantsLogged = new CountDownLatch(1);
+        CountDownLatch grantsMayCommit = new CountDownLatch(1);
+        CompletableFuture<Void> bulkGrant = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(
+                status -> {
+                    jdbcTemplate.update("INSERT INTO user_agent_access (user_id, agent_id) " +
+                            "SELECT u, 'slow-writer' FROM unnest(?::bigint[]) u", (Object) userIds.toArray(Long[]::new));
+                    grantsLogged.countDown();
+                    await(grantsMayCommit);
+                }));
+        assertThat(grantsLogged.await(10, TimeUnit.SECONDS)).isTrue();
+        
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> jdbcTemplate.update(
+                    "INSERT INTO user_agent_access (user_id, agent_id) VALUES (?, 'fast-writer')", userIds.get(0)));
+        } finally {
+            grantsMayCommit.countDown();
+            bulkGrant.get(10, TimeUnit.SECONDS);
+        }
+        agentChangeSequencer.sequencePending();
+        
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM agent_changes WHERE change_type = 'GRANT' " +
+                "AND agent_id = 'slow-writer' AND version IS NOT NULL", Long.class)).isEqualTo(100);
+    }
+    
+    private void touch(String agentId) {
+        jdbcTemplate.update("UPDATE agents SET updated_at = clock_timestamp() WHERE id = ?", agentId);
+    }
+    
+    private Long latestVersionOf(String agentId) {
+        return jdbcTemplate.queryForObject("SELECT max(version) FROM agent_changes WHERE agent_id = ?", Long.class,
+                agentId);
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
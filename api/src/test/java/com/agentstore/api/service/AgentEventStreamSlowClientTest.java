@@ -0,0 +1,87 @@
+package com.agentstore.api.service;
+
+import com.agentstore.api.security.JwtUtils;
+import com.agentstore.api.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Streams to a real Tomcat with a single send thread, so a client that stops reading would stall everyone else if
+ * a write ever blocked
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "app.agents.health.enabled=false",
+        "app.agents.stream.send-threads=1",
+        "app.agents.stream.buffer-size=10000",
+        "app.agents.stream.max-events=10000"})
+class AgentEventStreamSlowClientTest extends PostgresIntegrationTest {
+    
+    // Far more than the socket buffers of the stalled connection can hold
+    private static final int LARGE_AGENTS = 150;
+    private static final String LARGE_DESCRIPTION = "x".repeat(100_000);
+    
+    @LocalServerPort
+    private int port;
+    
+    @Autowired
+    private JwtUtils jwtUtils;
+    
+    @Autowired
+    private AgentEventStream agentEventStream;
+    
+    @Test
+    void clientThatStopsReadingDoesNotStallOtherClients() throws Exception {
+        String token = jwtUtils.generateTokenFromUsername("admin");
+        try (Socket stalled = openStalledStream(token)) {
+            Queue<String> received = new ConcurrentLinkedQueue<>();
+            HttpClient.newHttpClient().sendAsync(HttpRequest.newBuilder(streamUri())
+                            .header("Authorization", "Bearer " + token)
+                            .build(), HttpResponse.BodyHandlers.ofLines())
+                    .thenAccept(response -> response.body().forEach(received::add));
+            await().atMost(Duration.ofSeconds(10)).until(() -> agentEventStream.getSubscriberCount() == 2);
+            
+            for (int i = 0; i < LARGE_AGENTS; i++) {
+                jdbcTemplate.update("INSERT INTO agents (id, title, description) VALUES (?, ?, ?)",
+                        "large-" + i, "Large " + i, LARGE_DESCRIPTION);
+            }
+            jdbcTemplate.update("INSERT INTO agents (id, title, description) VALUES ('stream-marker', 'M', 'M')");
+            
+            await().atMost(Duration.ofSeconds(15))
+                    .until(() -> received.stream().anyMatch(line -> line.contains("\"agentId\":\"stream-marker\"")));
+        }
+    }
+    
+    private Socket openStalledStream(String token) throws IOException {
+        Socket socket = new Socket();
+        // Set before connecting, so the window the server sees stays small
+        socket.setReceiveBufferSize(4096);
+        socket.connect(new InetSocketAddress("localhost", port));
+        OutputStream output = socket.getOutputStream();
+        output.write(("GET " + streamUri().getPath() + " HTTP/1.1\r\nHost: localhost\r\n" +
+                "Authorization: Bearer " + token + "\r\nAccept: text/event-stream\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        output.flush();
+        return socket;
+    }
+    
+    private URI streamUri() {
+        return URI.create("http://localhost:" + port + "/api/v1/agents/stream");
+    }
+}
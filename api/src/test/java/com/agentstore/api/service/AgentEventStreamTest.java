@@ -0,0 +1,144 @@
+package com.agentstore.api.service;
+
+import com.agentstore.api.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@AutoConfigureMockMvc
+@TestPropertySource(properties = "app.agents.stream.max-events=3")
+class AgentEventStreamTest extends PostgresIntegrationTest {
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private AgentChangeSequencer agentChangeSequencer;
+    
+    @Test
+    void eachEventCarriesTheVersionOfItsOwnChange() throws Exception {
+        MockHttpServletResponse stream = subscribe(1L, "ROLE_ADMIN");
+        
+        insertAgents("stream-first");
+        insertAgents("stream-second");
+        agentChangeSequencer.sequencePending();
+        
+        List<Event> events = awaitEvents(stream, 2);
+        assertThat(events).extracting(Event::name).containsExactly("agent-created", "agent-created");
+        assertThat(events.get(0).id()).isEqualTo(versionOf("CREATE", "stream-first"));
+        assertThat(events.get(1).id()).isEqualTo(versionOf("CREATE", "stream-second"));
+        assertThat(events.get(0).data()).contains("\"version\":" + events.get(0).id());
+    }
+    
+    @Test
+    void grantIsSentToTheGranteeWithTheVersionOfTheGrant() throws Exception {
+        Long userId = insertUsers("stream-grantee", 1).get(0);
+        insertAgents("stream-granted");
+        agentChangeSequencer.sequencePending();
+        MockHttpServletResponse stream = subscribe(userId, "ROLE_USER");
+        
+        jdbcTemplate.update("INSERT INTO user_agent_access (user_id, agent_id) VALUES (?, 'stream-granted')", userId);
+        agentChangeSequencer.sequencePending();
+        
+        List<Event> events = awaitEvents(stream, 1);
+        assertThat(events.get(0).name()).isEqualTo("access-granted");
+        assertThat(events.get(0).id()).isEqualTo(versionOf("GRANT", "stream-granted"));
+    }
+    
+    @Test
+    void manyAgentsChangedAtOnceAreSentAsOneCatalogChange() throws Exception {
+        MockHttpServletResponse stream = subscribe(1L, "ROLE_ADMIN");
+        
+        insertAgents("stream-bulk-1", "stream-bulk-2", "stream-bulk-3", "stream-bulk-4");
+        agentChangeSequencer.sequencePending();
+        
+        List<Event> events = awaitEvents(stream, 1);
+        assertThat(events).extracting(Event::name).containsExactly("catalog-changed");
+        assertThat(events.get(0).id()).isEqualTo(versionOf("CREATE", "stream-bulk-4"));
+    }
+    
+    @Test
+    void bulkRevokeAboveTheCapIsSentAsOneCatalogChange() throws Exception {
+        Long userId = insertUsers("stream-revoked", 1).get(0);
+        insertAgents("stream-revoked-1", "stream-revoked-2", "stream-revoked-3", "stream-revoked-4");
+        jdbcTemplate.update("INSERT INTO user_agent_access (user_id, agent_id) " +
+                "SELECT ?, id FROM agents WHERE id LIKE 'stream-revoked-%'", userId);
+        agentChangeSequencer.sequencePending();
+        MockHttpServletResponse stream = subscribe(userId, "ROLE_USER");
+        
+        jdbcTemplate.update("DELETE FROM user_agent_access WHERE user_id = ?", userId);
+        agentChangeSequencer.sequencePending();
+        
+        List<Event> events = awaitEvents(stream, 1);
+        assertThat(events).extracting(Event::name).containsExactly("catalog-changed");
+    }
+    
+    private MockHttpServletResponse subscribe(Long userId, String role) throws Exception {
+        authenticateAs(userId, role);
+        MockHttpServletResponse response = mockMvc.perform(get("/agents/stream")
+                        .with(authentication(SecurityContextHolder.getContext().getAuthentication())))
+                .andExpect(request().asyncStarted())
+                .andReturn()
+                .getResponse();
+        SecurityContextHolder.clearContext();
+        return response;
+    }
+    
+    // One statement, so the agents are logged and committed together
+    private void insertAgents(String... agentIds) {
+        jdbcTemplate.update("INSERT INTO agents (id, title, description) SELECT id, id, id FROM unnest(?::varchar[]) id",
+                (Object) agentIds);
+    }
+    
+    private long versionOf(String changeType, String agentId) {
+        return jdbcTemplate.queryForObject("SELECT version FROM agent_changes WHERE change_type = ? AND agent_id = ?",
+                Long.class, changeType, agentId);
+    }
+    
+    private static List<Event> awaitEvents(MockHttpServletResponse stream, int count) throws Exception {
+        await().atMost(Duration.ofSeconds(10)).until(() -> parse(stream).size() >= count);
+        // Anything sent after the expected events would be a duplicate or a stray event
+        List<Event> events = parse(stream);
+        assertThat(events).hasSize(count);
+        return events;
+    }
+    
+    private static List<Event> parse(MockHttpServletResponse stream) throws Exception {
+        List<Event> events = new ArrayList<>();
+        for (String block : stream.getContentAsString().split("\n\n")) {
+            long id = -1;
+            String name = null;
+            String data = null;
+            for (String line : block.split("\n")) {
+                if (line.startsWith("id:")) {
+                    id = Long.parseLong(line.substring(3));
+                } else if (line.startsWith("event:")) {
+                    name = line.substring(6);
+                } else if (line.startsWith("data:")) {
+                    data = line.substring(5);
+                }
+            }
+            if (name != null) {
+                events.add(new Event(id, name, data));
+            }
+        }
+        return events;
+    }
+    
+    private record Event(long id, String name, String data) {
+    }
+}
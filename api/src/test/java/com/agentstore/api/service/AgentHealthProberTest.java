@@ -0,0 +1,217 @@
+package com.agentstore.api.service;
+
+import com.agentstore.api.dto.AgentHealth;
+import com.agentstore.api.dto.AgentHealthStatus;
+import com.agentstore.api.event.AgentHealthChangedEvent;
+import com.agentstore.api.repository.AgentRepository;
+import com.agentstore.api.repository.projection.AgentProbeTarget;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Probes stand-in agent services on the loopback interface: one that answers, one that fails and one that never
+ * answers
+ */
+class AgentHealthProberTest {
+    
+    private static final Duration TIMEOUT = Duration.ofMillis(500);
+    
+    private final AgentRepository agentRepository = mock(AgentRepository.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final AtomicInteger upStatus = new AtomicInteger(204);
+    
+    private HttpServer httpServer;
+    private ServerSocket silentServer;
+    private ServerSocket tcpServer;
+    private AgentHealthProber prober;
+    
+    @BeforeEach
+    void startServers() throws IOException {
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        httpServer = HttpServer.create(new InetSocketAddress(loopback, 0), 0);
+        httpServer.createContext("/up", exchange -> {
+            exchange.sendResponseHeaders(upStatus.get(), -1);
+            exchange.close();
+        });
+        httpServer.createContext("/down", exchange -> {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+        });
+        httpServer.start();
+        
+        // Connections are queued by the kernel but never read, so a request gets no answer
+        silentServer = new ServerSocket(0, 50, loopback);
+        tcpServer = new ServerSocket(0, 50, loopback);
+        
+        prober = new AgentHealthProber(agentRepository, eventPublisher);
+        ReflectionTestUtils.setField(prober, "enabled", true);
+        ReflectionTestUtils.setField(prober, "timeout", TIMEOUT);
+        ReflectionTestUtils.setField(prober, "tcpHost", loopback.getHostAddress());
+        ReflectionTestUtils.setField(prober, "poolSize", 2);
+        prober.startClients();
+    }
+    
+    @AfterEach
+    void stopServers() throws IOException {
+        prober.stopClients();
+        httpServer.stop(0);
+        silentServer.close();
+        tcpServer.close();
+    }
+    
+    @Test
+    void answeringHttpServiceIsUp() {
+        AgentHealth health = prober.probe("agent", httpUrl("/up"), null).join();
+        
+        assertThat(health.getStatus()).isEqualTo(AgentHealthStatus.UP);
+        assertThat(health.getLatencyMs()).isNotNull();
+        assertThat(health.getError()).isNull();
+    }
+    
+    @Test
+    void failingHttpServiceIsDown() {
+        AgentHealth health = prober.probe("agent", httpUrl("/down"), null).join();
+        
+        assertThat(health.getStatus()).isEqualTo(AgentHealthStatus.DOWN);
+        assertThat(health.getError()).isEqualTo("HTTP 503");
+        assertThat(health.getLatencyMs()).isNull();
+    }
+    
+    @Test
+    void missingHttpServiceIsDown() {
+        upStatus.set(404);
+        
+        AgentHealth health = prober.probe("agent", httpUrl("/up"), null).join();
+        
+        assertThat(health.getStatus()).isEqualTo(AgentHealthStatus.DOWN);
+        assertThat(health.getError()).isEqualTo("HTTP 404");
+    }
+    
+    @Test
+    void silentHttpServiceIsDownAfterTheTimeout() {
+        long start = System.nanoTime();
+        AgentHealth health = prober.probe("agent", "http://" + address(silentServer) + "/", null).join();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        
+        assertThat(health.getStatus()).isEqualTo(AgentHealthStatus.DOWN);
+        assertThat(health.getError()).isEqualTo("Timed out");
+        assertThat(elapsed).isGreaterThanOrEqualTo(TIMEOUT.toMillis()).isLessThan(TIMEOUT.toMillis() * 10);
+    }
+    
+    @Test
+    void listeningPortIsUpAndClosedPortIsDown() throws IOException {
+        int closedPort;
+        try (ServerSocket closed = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            closedPort = closed.getLocalPort();
+        }
+        
+        AgentHealth up = prober.probe("agent", null, Integer.toString(tcpServer.getLocalPort())).join();
+        AgentHealth down = prober.probe("agent", null, Integer.toString(closedPort)).join();
+        
+        assertThat(up.getStatus()).isEqualTo(AgentHealthStatus.UP);
+        assertThat(down.getStatus()).isEqualTo(AgentHealthStatus.DOWN);
+    }
+    
+    @Test
+    void portIsNotProbedWithoutATcpHost() {
+        ReflectionTestUtils.setField(prober, "tcpHost", "");
+        
+        AgentHealth health = prober.probe("agent", null, Integer.toString(tcpServer.getLocalPort())).join();
+        
+        assertThat(health.getStatus()).isEqualTo(AgentHealthStatus.UNKNOWN);
+    }
+    
+    @Test
+    void agentWithoutLinkOrPortIsUnknown() {
+        AgentHealth health = prober.probe("agent", "mailto:team@example.com", "not-a-port").join();
+        
+        assertThat(health.getStatus()).isEqualTo(AgentHealthStatus.UNKNOWN);
+    }
+    
+    @Test
+    void listingsAreRefreshedOnlyWhenAStatusChanges() {
+        when(agentRepository.findAllProbeTargets()).thenReturn(List.of(
+                target("up", httpUrl("/up")),
+                target("down", httpUrl("/down")),
+                target("silent", "http://" + address(silentServer) + "/")));
+        
+        prober.probeAll().join();
+        assertThat(publishedAgentIds()).containsExactlyInAnyOrder("up", "down", "silent");
+        assertThat(prober.getHealth("silent")).get().extracting(AgentHealth::getStatus)
+                .isEqualTo(AgentHealthStatus.DOWN);
+        
+        // Same statuses, different latencies: nothing the listing shows has moved
+        prober.probeAll().join();
+        assertThat(publishedAgentIds()).isEmpty();
+        
+        upStatus.set(500);
+        prober.probeAll().join();
+        assertThat(publishedAgentIds()).containsExactly("up");
+        assertThat(prober.getHealth("up")).get().extracting(AgentHealth::getStatus)
+                .isEqualTo(AgentHealthStatus.DOWN);
+    }
+    
+    /**
+     * Get the agents of the health events published since the last call
+     */
+    private List<String> publishedAgentIds() {
+        ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher, atLeast(0)).publishEvent(events.capture());
+        clearInvocations(eventPublisher);
+        return events.getAllValues().stream()
+                .map(event -> ((AgentHealthChangedEvent) event).getAgentId())
+                .toList();
+    }
+    
+    private String httpUrl(String path) {
+        return "http://" + address(httpServer.getAddress()) + path;
+    }
+    
+    private static String address(ServerSocket server) {
+        return address((InetSocketAddress) server.getLocalSocketAddress());
+    }
+    
+    private static String address(InetSocketAddress address) {
+        return address.getAddress().getHostAddress() + ":" + address.getPort();
+    }
+    
+    private static AgentProbeTarget target(String id, String linkUrl) {
+        return new AgentProbeTarget() {
+            @Override
+            public String getId() {
+                return id;
+            }
+            
+            @Override
+            public String getLinkUrl() {
+                return linkUrl;
+            }
+            
+            @Override
+            public String getPort() {
+                return null;
+            }
+        };
+    }
+}
@@ -0,0 +1,82 @@
+package com.agentstore.api.service;
+
+import com.agentstore.api.support.PostgresIntegrationTest;
+import com.agentstore.api.util.ImageUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AgentImageServiceTest extends PostgresIntegrationTest {
+    
+    @Autowired
+    private AgentImageService agentImageService;
+    
+    @Test
+    void concurrentUploadsKeepBlobCountsExact() throws Exception {
+        jdbcTemplate.update("INSERT INTO agents (id, title, description) VALUES ('image-race', 'R', 'R')");
+        List<byte[]> images = List.of(png(0xFF0000), png(0x00FF00), png(0x0000FF));
+        
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        try {
+            List<Callable<String>> uploads = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                byte[] image = images.get(i % images.size());
+                uploads.add(() -> agentImageService.uploadImage("image-race", "image/png",
+                        new ByteArrayInputStream(image)));
+            }
+            for (Future<String> upload : executor.invokeAll(uploads)) {
+                upload.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        
+        // Only the image that won holds a blob, referenced exactly once
+        String contentHash = jdbcTemplate.queryForObject(
+                "SELECT content_hash FROM agent_images WHERE agent_id = 'image-race'", String.class);
+        List<Map<String, Object>> blobs = jdbcTemplate.queryForList(
+                "SELECT content_hash, ref_count FROM image_blobs WHERE content_hash = ANY(?)",
+                (Object) images.stream().map(ImageUtil::sha256Hex).toArray(String[]::new));
+        assertThat(blobs).containsExactly(Map.of("content_hash", contentHash, "ref_count", 1));
+    }
+    
+    @Test
+    void uploadingTheSameBytesCorrectsTheMimeType() throws IOException {
+        jdbcTemplate.update("INSERT INTO agents (id, title, description) VALUES ('image-mime', 'M', 'M')");
+        byte[] image = png(0x123456);
+        agentImageService.saveImage("image-mime", "image/jpeg", image);
+        
+        agentImageService.uploadImage("image-mime", "image/png", new ByteArrayInputStream(image));
+        
+        assertThat(jdbcTemplate.queryForObject("SELECT mime_type FROM agent_images WHERE agent_id = 'image-mime'",
+                String.class)).isEqualTo("image/png");
+        assertThat(jdbcTemplate.queryForObject("SELECT ref_count FROM image_blobs WHERE content_hash = ?",
+                Integer.class, ImageUtil.sha256Hex(image))).isEqualTo(1);
+    }
+    
+    private static byte[] png(int rgb) throws IOException {
+        BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < 4; x++) {
+            for (int y = 0; y < 4; y++) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
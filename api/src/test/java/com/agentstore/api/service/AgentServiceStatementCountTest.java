@@ -0,0 +1,98 @@
+package com.agentstore.api.service;
+
+import com.agentstore.api.dto.AgentDto;
+import com.agentstore.api.exception.ResourceNotFoundException;
+import com.agentstore.api.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * GET /agents/{id} must cost the same number of statements however many users can see the agent
+ */
+class AgentServiceStatementCountTest extends PostgresIntegrationTest {
+    
+    private static final String AGENT_ID = "statement-count-agent";
+    
+    @Autowired
+    private AgentService agentService;
+    
+    @Autowired
+    private AgentImageService agentImageService;
+    
+    @Autowired
+    private AgentAccessService agentAccessService;
+    
+    @BeforeEach
+    void createAgentWithImage() throws IOException {
+        jdbcTemplate.update("INSERT INTO agents (id, title, description) VALUES (?, 'Counted', 'Read by statement " +
+                "count tests') ON CONFLICT DO NOTHING", AGENT_ID);
+        // Uploading the same bytes again leaves the stored image as it is
+        agentImageService.uploadImage(AGENT_ID, "image/png", new ByteArrayInputStream(png()));
+    }
+    
+    @Test
+    void adminReadsAgentAndImageInTwoStatementsWhateverTheNumberOfUsersWithAccess() {
+        authenticateAs(1L, "ROLE_ADMIN");
+        int before = countGetAgentById();
+        
+        // Granted behind the services' back: only the statement count matters here
+        List<Long> userIds = insertUsers("granted", 1000);
+        jdbcTemplate.batchUpdate("INSERT INTO user_agent_access (user_id, agent_id) VALUES (?, ?)", userIds, 500,
+                (ps, userId) -> {
+                    ps.setLong(1, userId);
+                    ps.setString(2, AGENT_ID);
+                });
+        
+        // The agent with its image metadata, then the image bytes from image_blobs
+        assertThat(before).isEqualTo(2);
+        assertThat(countGetAgentById()).isEqualTo(2);
+    }
+    
+    @Test
+    void grantedUserReadsAgentAndImageInTwoStatements() {
+        Long userId = insertUsers("reader", 1).get(0);
+        agentAccessService.grant(userId, List.of(AGENT_ID));
+        authenticateAs(userId, "ROLE_USER");
+        
+        AtomicReference<AgentDto> agent = new AtomicReference<>();
+        int statements = sqlStatementCounter.count(() -> agent.set(agentService.getAgentById(AGENT_ID)));
+        
+        assertThat(statements).isEqualTo(2);
+        assertThat(agent.get().getImageData()).isNotEmpty();
+        assertThat(agent.get().getImageUrl()).startsWith("/images/agents/" + AGENT_ID + "?v=");
+    }
+    
+    @Test
+    void hiddenAgentIsRejectedWithoutAnyStatement() {
+        Long userId = insertUsers("outsider", 1).get(0);
+        authenticateAs(userId, "ROLE_USER");
+        
+        int statements = sqlStatementCounter.count(() -> assertThatThrownBy(() -> agentService.getAgentById(AGENT_ID))
+                .isInstanceOf(ResourceNotFoundException.class));
+        
+        assertThat(statements).isZero();
+    }
+    
+    private int countGetAgentById() {
+        return sqlStatementCounter.count(() -> agentService.getAgentById(AGENT_ID));
+    }
+    
+    private static byte[] png() throws IOException {
+        BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,48 @@
+package com.agentstore.api.service;
+
+import com.agentstore.api.dto.UserDto;
+import com.agentstore.api.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserServiceStatementCountTest extends PostgresIntegrationTest {
+    
+    @Autowired
+    private UserService userService;
+    
+    @Test
+    void listingUsersTakesThreeStatementsWhateverTheNumberOfUsers() {
+        insertUsers("directory-few", 10);
+        int fewUsers = sqlStatementCounter.count(userService::getAllUsers);
+        
+        List<Long> userIds = insertUsers("directory-many", 10_000);
+        jdbcTemplate.update("INSERT INTO agents (id, title, description) VALUES ('directory-agent', 'A', 'A')");
+        jdbcTemplate.update("INSERT INTO user_agent_access (user_id, agent_id) " +
+                "SELECT u, 'directory-agent' FROM unnest(?::bigint[]) u", (Object) userIds.toArray(Long[]::new));
+        
+        AtomicReference<List<UserDto>> users = new AtomicReference<>();
+        int manyUsers = sqlStatementCounter.count(() -> users.set(userService.getAllUsers()));
+        
+        // Users, their role names and their grants
+        assertThat(fewUsers).isEqualTo(3);
+        assertThat(manyUsers).isEqualTo(3);
+        assertThat(users.get()).hasSizeGreaterThanOrEqualTo(10_010);
+        // Inserted by one statement, so they share created_at and only the id orders them
+        Set<Long> manyIds = new HashSet<>(userIds);
+        assertThat(users.get().stream().map(UserDto::getId).filter(manyIds::contains).toList())
+                .containsExactlyElementsOf(userIds);
+        UserDto user = users.get().stream()
+                .filter(dto -> dto.getId().equals(userIds.get(0)))
+                .findFirst()
+                .orElseThrow();
+        assertThat(user.getRoles()).containsExactly("ROLE_USER");
+        assertThat(user.getAccessibleAgents()).containsExactly("directory-agent");
+    }
+}
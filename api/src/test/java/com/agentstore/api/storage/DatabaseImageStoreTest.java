@@ -0,0 +1,49 @@
+package com.agentstore.api.storage;
+
+import com.agentstore.api.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DatabaseImageStoreTest extends PostgresIntegrationTest {
+    
+    // Spans several read windows and ends part way through one
+    private static final byte[] DATA = randomBytes(700_000);
+    
+    @Autowired
+    private DatabaseImageStore databaseImageStore;
+    
+    @Test
+    void imagesAreCopiedWindowByWindow() {
+        jdbcTemplate.update("INSERT INTO image_blobs (content_hash, data, size_bytes, ref_count) " +
+                "VALUES ('store-whole', ?, ?, 1)", DATA, DATA.length);
+        
+        ByteArrayOutputStream whole = new ByteArrayOutputStream();
+        ByteArrayOutputStream range = new ByteArrayOutputStream();
+        
+        assertThat(databaseImageStore.copyTo("agent", "store-whole", whole)).isEqualTo(DATA.length);
+        assertThat(whole.toByteArray()).isEqualTo(DATA);
+        assertThat(databaseImageStore.copyRange("agent", "store-whole", 200_000, 300_000, range)).isEqualTo(300_000);
+        assertThat(range.toByteArray()).isEqualTo(Arrays.copyOfRange(DATA, 200_000, 500_000));
+    }
+    
+    @Test
+    void missingImageCopiesNothing() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        
+        assertThat(databaseImageStore.copyTo("agent", "store-missing", out)).isEqualTo(-1);
+        assertThat(databaseImageStore.copyGzipTo("agent", "store-missing", out)).isEqualTo(-1);
+        assertThat(out.size()).isZero();
+    }
+    
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,77 @@
+package com.agentstore.api.support;
+
+import com.agentstore.api.security.UserDetailsImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.annotation.DirtiesContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Base class of tests that run the application against a real Postgres, migrated by Flyway
+ * The migrations rely on Postgres triggers and functions, so no embedded database can stand in for it.
+ * Skipped when no Docker daemon is available.
+ */
+@SpringBootTest(properties = "app.agents.health.enabled=false")
+@Testcontainers(disabledWithoutDocker = true)
+@Import(SqlStatementCounter.class)
+// Each test class gets its own container, so its context must not be reused by the next class
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public abstract class PostgresIntegrationTest {
+    
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+    
+    @Autowired
+    protected SqlStatementCounter sqlStatementCounter;
+    
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+    
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+    
+    /**
+     * Act as a user with the given roles, as the JWT filter would after reading a token
+     */
+    protected void authenticateAs(Long userId, String... roles) {
+        List<SimpleGrantedAuthority> authorities = Arrays.stream(roles).map(SimpleGrantedAuthority::new).toList();
+        UserDetailsImpl user = UserDetailsImpl.builder()
+                .id(userId)
+                .username("user" + userId)
+                .enabled(true)
+                .authorities(authorities)
+                .build();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, authorities));
+    }
+    
+    /**
+     * Insert users with the ROLE_USER role straight into the database, bypassing the indexes kept by services
+     * @return The IDs of the new users
+     */
+    protected List<Long> insertUsers(String prefix, int count) {
+        jdbcTemplate.update("INSERT INTO users (username, email, password, enabled) " +
+                "SELECT ? || n, ? || n || '@example.com', 'x', TRUE FROM generate_series(1, ?) n",
+                prefix, prefix, count);
+        jdbcTemplate.update("INSERT INTO user_roles (user_id, role_id) " +
+                "SELECT u.id, r.id FROM users u, roles r WHERE u.username LIKE ? || '%' AND r.name = 'ROLE_USER'",
+                prefix);
+        return jdbcTemplate.queryForList("SELECT id FROM users WHERE username LIKE ? || '%' ORDER BY id",
+                Long.class, prefix);
+    }
+}
@@ -0,0 +1,73 @@
+package com.agentstore.api.support;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the SQL statements executed by the calling thread, whether issued by Hibernate or a JdbcTemplate
+ * The data source is wrapped so every statement execution is seen; batches count once. Work running on other
+ * threads, such as index warm-up or image variant generation, is not counted.
+ */
+public class SqlStatementCounter implements BeanPostProcessor {
+    
+    private final ThreadLocal<AtomicInteger> counter = new ThreadLocal<>();
+    
+    /**
+     * Run an action and count the statements it executed
+     */
+    public int count(Runnable action) {
+        AtomicInteger count = new AtomicInteger();
+        counter.set(count);
+        try {
+            action.run();
+        } finally {
+            counter.remove();
+        }
+        return count.get();
+    }
+    
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource) {
+            return wrap(DataSource.class, dataSource);
+        }
+        return bean;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private <T> T wrap(Class<T> type, T target) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Object result = invoke(target, method, args);
+            
+            if (Statement.class.isAssignableFrom(type) && method.getName().startsWith("execute")) {
+                AtomicInteger count = counter.get();
+                if (count != null) {
+                    count.incrementAndGet();
+                }
+            }
+            
+            // Connections and statements are wrapped too, so executions reach the counter
+            Class<?> returnType = method.getReturnType();
+            if (returnType.isInterface() && result != null
+                    && (returnType == Connection.class || Statement.class.isAssignableFrom(returnType))) {
+                return wrap((Class<Object>) returnType, result);
+            }
+            return result;
+        });
+    }
+    
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.agentstore.api.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageUtilTest {
+    
+    private static final String SVG = "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"1\" height=\"1\"/>";
+    
+    @Test
+    void svgIsFoundAfterALongEditorProlog() {
+        String prolog = "\uFEFF<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                "<!-- Generator: " + "x".repeat(3_000) + " -->\n" +
+                "<!DOCTYPE svg PUBLIC \"-//W3C//DTD SVG 1.1//EN\"\n" +
+                "    \"http://www.w3.org/Graphics/SVG/1.1/DTD/svg11.dtd\" [\n" +
+                "    <!ENTITY ns_graphs \"http://ns.adobe.com/Graphs/1.0/\">\n" +
+                "]>\n";
+        
+        assertThat(ImageUtil.detectMimeType(bytes(prolog + SVG))).isEqualTo("image/svg+xml");
+    }
+    
+    @Test
+    void svgMustBeTheRootElement() {
+        assertThat(ImageUtil.detectMimeType(bytes("<html><body>" + SVG + "</body></html>"))).isNull();
+        assertThat(ImageUtil.detectMimeType(bytes("<!-- <svg> -->\n<html/>"))).isNull();
+        assertThat(ImageUtil.detectMimeType(bytes("<svgfoo/>"))).isNull();
+    }
+    
+    @Test
+    void prologLongerThanTheSniffedBytesIsNotRecognised() {
+        String comment = "<!-- " + "x".repeat(ImageUtil.SNIFF_HEADER_BYTES) + " -->";
+        
+        assertThat(ImageUtil.detectMimeType(bytes(comment + SVG))).isNull();
+    }
+    
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}